@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.secvault.benchmarks;
+
+import org.wso2.carbon.secvault.MasterKeyReader;
+import org.wso2.carbon.secvault.SecretRepository;
+import org.wso2.carbon.secvault.SecureVault;
+import org.wso2.carbon.secvault.SecureVaultConstants;
+import org.wso2.carbon.secvault.SecureVaultFactory;
+import org.wso2.carbon.secvault.SecureVaultUtils;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
+import org.wso2.carbon.secvault.reader.DefaultMasterKeyReader;
+import org.wso2.carbon.secvault.repository.DefaultSecretRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * A secure vault set up in a temporary directory for benchmarking, with the key store of the component tests and a
+ * secrets file of a given number of encrypted secrets.
+ *
+ * @since 5.0.23
+ */
+final class BenchmarkEnvironment implements AutoCloseable {
+    static final String KEY_STORE_RESOURCE = "/security/securevault.jks";
+    static final String KEY_STORE_PASSWORD = "wso2carbon";
+    static final String PRIVATE_KEY_ALIAS = "wso2carbon";
+    private static final String SECRET_ALIAS_PREFIX = "benchmark.secret.";
+    private static final String PLACEHOLDER_PROPERTY_PREFIX = "securevault.benchmark.";
+
+    private final Path directory;
+    private final Path secureVaultConfigPath;
+    private final Path secretsPath;
+
+    private BenchmarkEnvironment(Path directory, Path secureVaultConfigPath, Path secretsPath) {
+        this.directory = directory;
+        this.secureVaultConfigPath = secureVaultConfigPath;
+        this.secretsPath = secretsPath;
+    }
+
+    /**
+     * Set up a secure vault with the key store of the component tests.
+     *
+     * @param secretCount          number of secrets in the secrets file, which are encrypted before this returns
+     * @param repositoryParameters additional parameters of the secret repository
+     * @return benchmark environment, which should be closed to delete its files
+     * @throws IOException          on an error while writing the files
+     * @throws SecureVaultException on an error while encrypting the secrets
+     */
+    static BenchmarkEnvironment create(int secretCount, Map<String, String> repositoryParameters)
+            throws IOException, SecureVaultException {
+        Path directory = Files.createTempDirectory("securevault-benchmark");
+        Path keyStorePath = directory.resolve("securevault.jks");
+        try (InputStream keyStore = BenchmarkEnvironment.class.getResourceAsStream(KEY_STORE_RESOURCE)) {
+            if (keyStore == null) {
+                throw new IOException("Key store resource not found : " + KEY_STORE_RESOURCE);
+            }
+            Files.copy(keyStore, keyStorePath);
+        }
+        return create(directory, keyStorePath, PRIVATE_KEY_ALIAS, secretCount, repositoryParameters);
+    }
+
+    /**
+     * Set up a secure vault with the given key store, in the given directory.
+     *
+     * @param directory            directory to write the configuration files to, which is deleted on close
+     * @param keyStorePath         JKS key store, protected with the password of the component test key store
+     * @param privateKeyAlias      alias of the key pair in the key store
+     * @param secretCount          number of secrets in the secrets file, which are encrypted before this returns
+     * @param repositoryParameters additional parameters of the secret repository
+     * @return benchmark environment, which should be closed to delete its files
+     * @throws IOException          on an error while writing the files
+     * @throws SecureVaultException on an error while encrypting the secrets
+     */
+    static BenchmarkEnvironment create(Path directory, Path keyStorePath, String privateKeyAlias, int secretCount,
+                                       Map<String, String> repositoryParameters)
+            throws IOException, SecureVaultException {
+        Path secretsPath = directory.resolve(SecureVaultConstants.SECRETS_PROPERTIES_FILE_NAME);
+        Path masterKeysPath = directory.resolve(SecureVaultConstants.MASTER_KEYS_FILE_NAME);
+        Path secureVaultConfigPath = directory.resolve(SecureVaultConstants.SECURE_VAULT_CONFIG_YAML_FILE_NAME);
+
+        List<String> secrets = new ArrayList<>(secretCount);
+        for (int i = 0; i < secretCount; i++) {
+            secrets.add(getSecretAlias(i) + "=" + SecureVaultConstants.PLAIN_TEXT + " " + getSecret(i));
+        }
+        Files.write(secretsPath, secrets, StandardCharsets.UTF_8);
+
+        String password = new String(SecureVaultUtils.toChars(SecureVaultUtils.base64Encode(
+                SecureVaultUtils.toBytes(KEY_STORE_PASSWORD))));
+        Files.write(masterKeysPath, ("permanent: true\n" +
+                "masterKeys:\n" +
+                "  keyStorePassword: !!binary " + password + "\n" +
+                "  privateKeyPassword: !!binary " + password + "\n").getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder secureVaultConfig = new StringBuilder()
+                .append("wso2.securevault:\n")
+                .append("  secretRepository:\n")
+                .append("    type: ").append(DefaultSecretRepository.class.getName()).append("\n")
+                .append("    parameters:\n")
+                .append("      privateKeyAlias: ").append(privateKeyAlias).append("\n")
+                .append("      keystoreLocation: ").append(keyStorePath.toAbsolutePath()).append("\n")
+                .append("      secretPropertiesFile: ").append(secretsPath.toAbsolutePath()).append("\n");
+        for (Map.Entry<String, String> parameter : repositoryParameters.entrySet()) {
+            secureVaultConfig.append("      ").append(parameter.getKey()).append(": ")
+                    .append(parameter.getValue()).append("\n");
+        }
+        secureVaultConfig
+                .append("  masterKeyReader:\n")
+                .append("    type: ").append(DefaultMasterKeyReader.class.getName()).append("\n")
+                .append("    parameters:\n")
+                .append("      masterKeyReaderFile: ").append(masterKeysPath.toAbsolutePath()).append("\n");
+        Files.write(secureVaultConfigPath, secureVaultConfig.toString().getBytes(StandardCharsets.UTF_8));
+
+        encryptSecrets(secureVaultConfigPath);
+        return new BenchmarkEnvironment(directory, secureVaultConfigPath, secretsPath);
+    }
+
+    /**
+     * Generate a JKS key store with a new RSA key pair, using the keytool of the running JVM.
+     *
+     * @param directory directory to create the key store in
+     * @param keySize   size of the RSA key in bits
+     * @return path of the key store, which is protected with the password of the component test key store
+     * @throws IOException on an error while running keytool
+     */
+    static Path generateKeyStore(Path directory, int keySize) throws IOException {
+        Path keyStorePath = directory.resolve("securevault-" + keySize + ".jks");
+        Path javaHome = Paths.get(System.getProperty("java.home"));
+        Path keytool = javaHome.resolve("bin").resolve("keytool");
+        if (!Files.exists(keytool) && javaHome.getParent() != null) {
+            // The java.home of a Java 8 JDK is its JRE directory
+            keytool = javaHome.getParent().resolve("bin").resolve("keytool");
+        }
+        Process process = new ProcessBuilder(keytool.toString(), "-genkeypair", "-alias", PRIVATE_KEY_ALIAS,
+                "-keyalg", "RSA", "-keysize", String.valueOf(keySize), "-validity", "3650",
+                "-dname", "CN=securevault-benchmark", "-storetype", "JKS", "-keystore", keyStorePath.toString(),
+                "-storepass", KEY_STORE_PASSWORD, "-keypass", KEY_STORE_PASSWORD)
+                .inheritIO()
+                .start();
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("Failed to generate a key store with keytool, exit code : " +
+                        process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating a key store", e);
+        }
+        return keyStorePath;
+    }
+
+    /**
+     * Replace the cipher text of each secret in the secrets file with a system property placeholder, so that loading
+     * the secrets substitutes every value.
+     *
+     * @param placeholdersPath file to write the system properties to, which should be loaded with
+     *                         {@link #loadPlaceholders(Path)} before the secrets are loaded
+     * @throws IOException          on an error while writing the files
+     * @throws SecureVaultException on an error while reading the secrets file
+     */
+    void replaceSecretsWithPlaceholders(Path placeholdersPath) throws IOException, SecureVaultException {
+        Properties secrets = SecureVaultUtils.loadSecretFile(secretsPath);
+        Properties placeholders = new Properties();
+        List<String> lines = new ArrayList<>(secrets.size());
+        for (String alias : secrets.stringPropertyNames()) {
+            String[] tokens = secrets.getProperty(alias).trim().split(SecureVaultConstants.SPACE);
+            String property = PLACEHOLDER_PROPERTY_PREFIX + alias;
+            placeholders.setProperty(property, tokens[1]);
+            lines.add(alias + "=" + tokens[0] + " ${sys:" + property + "}");
+        }
+        Files.write(secretsPath, lines, StandardCharsets.UTF_8);
+        try (OutputStream outputStream = Files.newOutputStream(placeholdersPath)) {
+            placeholders.store(outputStream, null);
+        }
+    }
+
+    /**
+     * Set the system properties written by {@link #replaceSecretsWithPlaceholders(Path)}.
+     *
+     * @param placeholdersPath file of system properties
+     * @throws IOException on an error while reading the file
+     */
+    static void loadPlaceholders(Path placeholdersPath) throws IOException {
+        Properties placeholders = new Properties();
+        try (InputStream inputStream = Files.newInputStream(placeholdersPath)) {
+            placeholders.load(inputStream);
+        }
+        for (String property : placeholders.stringPropertyNames()) {
+            System.setProperty(property, placeholders.getProperty(property));
+        }
+    }
+
+    static String getSecretAlias(int index) {
+        return SECRET_ALIAS_PREFIX + index;
+    }
+
+    static String getSecret(int index) {
+        return "Secret@" + index;
+    }
+
+    Path getSecureVaultConfigPath() {
+        return secureVaultConfigPath;
+    }
+
+    /**
+     * Initialize a secure vault of this environment, in the same way as a standalone application.
+     *
+     * @return initialized secure vault
+     * @throws SecureVaultException on an error while initializing the secure vault
+     */
+    SecureVault createSecureVault() throws SecureVaultException {
+        return SecureVaultFactory.getSecureVault(secureVaultConfigPath)
+                .orElseThrow(() -> new SecureVaultException("Error in getting secure vault instance"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Encrypt the plain text secrets of the secrets file, in the same way as the cipher tool.
+     */
+    private static void encryptSecrets(Path secureVaultConfigPath) throws SecureVaultException {
+        SecureVaultConfiguration secureVaultConfiguration = SecureVaultUtils.getSecureVaultConfig(
+                secureVaultConfigPath)
+                .orElseThrow(() -> new SecureVaultException("Error in reading secure vault configuration"));
+        MasterKeyReader masterKeyReader = new DefaultMasterKeyReader();
+        masterKeyReader.init(secureVaultConfiguration.getMasterKeyReaderConfig());
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secureVaultConfiguration.getSecretRepositoryConfig(), masterKeyReader);
+        secretRepository.persistSecrets(secureVaultConfiguration.getSecretRepositoryConfig());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.secvault.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.secvault.SecureVault;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link SecureVault#encrypt(byte[])} and {@link SecureVault#decrypt(byte[])} at several payload sizes,
+ * on a single thread and on all available processors.
+ * <p>
+ * Each case is given as {@code <encryption mode>/<payload size>}, since the {@code rsa} encryption mode only
+ * supports payloads which fit in a single block of the key pair.
+ *
+ * @since 5.0.23
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherBenchmark {
+    @Param({"rsa/16", "rsa/128", "envelope/16", "envelope/128", "envelope/4096", "envelope/65536"})
+    private String cipherCase;
+
+    private BenchmarkEnvironment benchmarkEnvironment;
+    private SecureVault secureVault;
+    private byte[] plainText;
+    private byte[] cipherText;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SecureVaultException {
+        String[] cipherCaseTokens = cipherCase.split("/");
+        benchmarkEnvironment = BenchmarkEnvironment.create(1,
+                Collections.singletonMap("encryptionMode", cipherCaseTokens[0]));
+        secureVault = benchmarkEnvironment.createSecureVault();
+        plainText = new byte[Integer.parseInt(cipherCaseTokens[1])];
+        new Random(42).nextBytes(plainText);
+        cipherText = secureVault.encrypt(plainText);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        benchmarkEnvironment.close();
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws SecureVaultException {
+        return secureVault.encrypt(plainText);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws SecureVaultException {
+        return secureVault.decrypt(cipherText);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] encryptContended() throws SecureVaultException {
+        return secureVault.encrypt(plainText);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] decryptContended() throws SecureVaultException {
+        return secureVault.decrypt(cipherText);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.secvault.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.secvault.MasterKey;
+import org.wso2.carbon.secvault.MasterKeyReader;
+import org.wso2.carbon.secvault.SecretRepository;
+import org.wso2.carbon.secvault.SecureVault;
+import org.wso2.carbon.secvault.SecureVaultConfigurationRegistry;
+import org.wso2.carbon.secvault.SecureVaultConstants;
+import org.wso2.carbon.secvault.SecureVaultFactory;
+import org.wso2.carbon.secvault.SecureVaultUtils;
+import org.wso2.carbon.secvault.cipher.JKSBasedCipherProvider;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.model.MasterKeyReaderConfiguration;
+import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
+import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
+import org.wso2.carbon.secvault.reader.DefaultMasterKeyReader;
+import org.wso2.carbon.secvault.repository.DefaultSecretRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the cold start of a standalone secure vault, end to end with
+ * {@link SecureVaultFactory#getSecureVault(Path)} and phase by phase. Every measurement is
+ * the first call in a fresh JVM, and the scaling across secret counts, key sizes and placeholder substitution is
+ * read from the results of each phase.
+ * <p>
+ * The files of each case are generated by a separate JVM, so that the classes of the measured paths are not loaded
+ * before the measurement. They are kept in {@code ${java.io.tmpdir}/securevault-cold-start} and reused by every
+ * fork and every later run.
+ *
+ * @since 5.0.23
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ColdStartBenchmark {
+    private static final String READY_FILE_NAME = "ready";
+    private static final String PLACEHOLDERS_FILE_NAME = "placeholders.properties";
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int secretCount;
+
+    @Param({"2048", "4096"})
+    private int keySize;
+
+    @Param({"false", "true"})
+    private boolean placeholders;
+
+    private Path directory;
+    private Path secureVaultConfigPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        directory = Paths.get(System.getProperty("java.io.tmpdir"), "securevault-cold-start",
+                secretCount + "-" + keySize + (placeholders ? "-placeholders" : ""));
+        if (!Files.exists(directory.resolve(READY_FILE_NAME))) {
+            generateInSeparateJvm();
+        }
+        if (placeholders) {
+            BenchmarkEnvironment.loadPlaceholders(directory.resolve(PLACEHOLDERS_FILE_NAME));
+        }
+        secureVaultConfigPath = directory.resolve(SecureVaultConstants.SECURE_VAULT_CONFIG_YAML_FILE_NAME);
+    }
+
+    /**
+     * Generate the files of a case, in the given directory.
+     *
+     * @param args directory, secret count, key size and whether to use placeholders
+     * @throws IOException          on an error while writing the files
+     * @throws SecureVaultException on an error while encrypting the secrets
+     */
+    public static void main(String[] args) throws IOException, SecureVaultException {
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        Path keyStorePath = BenchmarkEnvironment.generateKeyStore(directory, Integer.parseInt(args[2]));
+        BenchmarkEnvironment benchmarkEnvironment = BenchmarkEnvironment.create(directory, keyStorePath,
+                BenchmarkEnvironment.PRIVATE_KEY_ALIAS, Integer.parseInt(args[1]), Collections.emptyMap());
+        if (Boolean.parseBoolean(args[3])) {
+            benchmarkEnvironment.replaceSecretsWithPlaceholders(directory.resolve(PLACEHOLDERS_FILE_NAME));
+        }
+        Files.createFile(directory.resolve(READY_FILE_NAME));
+    }
+
+    @Benchmark
+    public SecureVault getSecureVault() throws SecureVaultException {
+        return SecureVaultFactory.getSecureVault(secureVaultConfigPath)
+                .orElseThrow(() -> new SecureVaultException("Failed to create the secure vault"));
+    }
+
+    @Benchmark
+    public SecureVaultConfiguration configParse() throws SecureVaultException {
+        SecureVaultConfigurationRegistry.getInstance().invalidate(secureVaultConfigPath);
+        return SecureVaultUtils.getSecureVaultConfig(secureVaultConfigPath)
+                .orElseThrow(() -> new SecureVaultException("Error in reading secure vault configuration"));
+    }
+
+    @Benchmark
+    public List<MasterKey> masterKeyRead() throws SecureVaultException {
+        MasterKeyReaderConfiguration masterKeyReaderConfiguration = new MasterKeyReaderConfiguration();
+        masterKeyReaderConfiguration.setParameter(SecureVaultConstants.MASTER_KEYS_YAML_CONFIG_PROPERTY,
+                directory.resolve(SecureVaultConstants.MASTER_KEYS_FILE_NAME).toString());
+        MasterKeyReader masterKeyReader = new DefaultMasterKeyReader();
+        masterKeyReader.init(masterKeyReaderConfiguration);
+        List<MasterKey> masterKeys = Arrays.asList(new MasterKey(JKSBasedCipherProvider.KEY_STORE_PASSWORD),
+                new MasterKey(JKSBasedCipherProvider.PRIVATE_KEY_PASSWORD));
+        masterKeyReader.readMasterKeys(masterKeys);
+        return masterKeys;
+    }
+
+    @Benchmark
+    public KeyStore keyStoreLoad() throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream inputStream = Files.newInputStream(directory.resolve("securevault-" + keySize + ".jks"))) {
+            keyStore.load(inputStream, BenchmarkEnvironment.KEY_STORE_PASSWORD.toCharArray());
+        }
+        return keyStore;
+    }
+
+    @Benchmark
+    public SecretRepository secretsParse(InitializedRepository initializedRepository) throws SecureVaultException {
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                initializedRepository.secureVaultConfiguration.getSecretRepositoryConfig();
+        secretRepositoryConfiguration.setParameter(SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY,
+                SecureVaultConstants.DECRYPTION_MODE_LAZY);
+        initializedRepository.secretRepository.loadSecrets(secretRepositoryConfiguration);
+        return initializedRepository.secretRepository;
+    }
+
+    @Benchmark
+    public SecretRepository secretsParseAndDecrypt(InitializedRepository initializedRepository)
+            throws SecureVaultException {
+        initializedRepository.secretRepository.loadSecrets(
+                initializedRepository.secureVaultConfiguration.getSecretRepositoryConfig());
+        return initializedRepository.secretRepository;
+    }
+
+    private void generateInSeparateJvm() throws IOException, InterruptedException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                ColdStartBenchmark.class.getName(), directory.toString(), String.valueOf(secretCount),
+                String.valueOf(keySize), String.valueOf(placeholders))
+                .inheritIO()
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("Failed to generate the cold start files at : " + directory);
+        }
+    }
+
+    /**
+     * A secret repository which is initialized with the key store and master keys of the case, so that only the
+     * loading of the secrets is measured.
+     */
+    @State(Scope.Benchmark)
+    public static class InitializedRepository {
+        private SecureVaultConfiguration secureVaultConfiguration;
+        private SecretRepository secretRepository;
+
+        @Setup(Level.Iteration)
+        public void setUp(ColdStartBenchmark benchmark) throws SecureVaultException {
+            secureVaultConfiguration = benchmark.configParse();
+            MasterKeyReader masterKeyReader = new DefaultMasterKeyReader();
+            masterKeyReader.init(secureVaultConfiguration.getMasterKeyReaderConfig());
+            secretRepository = new DefaultSecretRepository();
+            secretRepository.init(secureVaultConfiguration.getSecretRepositoryConfig(), masterKeyReader);
+        }
+    }
+}
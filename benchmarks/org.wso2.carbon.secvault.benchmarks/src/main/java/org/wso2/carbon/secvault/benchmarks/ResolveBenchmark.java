@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.secvault.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.secvault.SecureVault;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link SecureVault#resolve(String)} for aliases which exist and which do not, on a single thread and
+ * on all available processors.
+ *
+ * @since 5.0.23
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveBenchmark {
+    @Param({"100", "10000"})
+    private int secretCount;
+
+    @Param({"eager", "lazy"})
+    private String decryptionMode;
+
+    private BenchmarkEnvironment benchmarkEnvironment;
+    private SecureVault secureVault;
+    private String existingAlias;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SecureVaultException {
+        benchmarkEnvironment = BenchmarkEnvironment.create(secretCount,
+                Collections.singletonMap("decryptionMode", decryptionMode));
+        secureVault = benchmarkEnvironment.createSecureVault();
+        existingAlias = BenchmarkEnvironment.getSecretAlias(secretCount / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        benchmarkEnvironment.close();
+    }
+
+    @Benchmark
+    public char[] resolveHit() throws SecureVaultException {
+        return secureVault.resolve(existingAlias);
+    }
+
+    @Benchmark
+    public char[] resolveMiss() throws SecureVaultException {
+        return secureVault.resolve("benchmark.missing");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public char[] resolveHitContended() throws SecureVaultException {
+        return secureVault.resolve(existingAlias);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.secvault.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.secvault.PlaceholderResolver;
+import org.wso2.carbon.secvault.SecureVaultUtils;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link SecureVaultUtils} methods which run for every secret and every configuration file, namely
+ * placeholder substitution, base64 encoding and decoding, and conversion between bytes and characters.
+ *
+ * @since 5.0.23
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecureVaultUtilsBenchmark {
+    private static final String SYSTEM_PROPERTY = "securevault.benchmark.value";
+
+    @Param({"16", "344", "4096"})
+    private int length;
+
+    private String plainValue;
+    private String placeholderValue;
+    private PlaceholderResolver placeholderResolverSnapshot;
+    private byte[] bytes;
+    private byte[] base64Encoded;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        System.setProperty(SYSTEM_PROPERTY, "resolved");
+        char[] characters = new char[length];
+        Random random = new Random(42);
+        for (int i = 0; i < length; i++) {
+            characters[i] = (char) ('a' + random.nextInt(26));
+        }
+        text = new String(characters);
+        plainValue = text;
+        // One placeholder in every 64 characters, as in a configuration file with placeholders
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i += 64) {
+            builder.append(text, i, Math.min(i + 64, length)).append("${sys:").append(SYSTEM_PROPERTY).append('}');
+        }
+        placeholderValue = builder.toString();
+        placeholderResolverSnapshot = PlaceholderResolver.snapshot();
+        bytes = SecureVaultUtils.toBytes(text);
+        base64Encoded = SecureVaultUtils.base64Encode(bytes);
+    }
+
+    @Benchmark
+    public String substituteVariablesWithoutPlaceholders() throws SecureVaultException {
+        return SecureVaultUtils.substituteVariables(plainValue);
+    }
+
+    @Benchmark
+    public String substituteVariablesWithPlaceholders() throws SecureVaultException {
+        return SecureVaultUtils.substituteVariables(placeholderValue);
+    }
+
+    @Benchmark
+    public String substituteVariablesWithPlaceholdersSnapshot() throws SecureVaultException {
+        return placeholderResolverSnapshot.resolve(placeholderValue);
+    }
+
+    @Benchmark
+    public byte[] base64Encode() {
+        return SecureVaultUtils.base64Encode(bytes);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() {
+        return SecureVaultUtils.base64Decode(base64Encoded);
+    }
+
+    @Benchmark
+    public char[] toChars() {
+        return SecureVaultUtils.toChars(bytes);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return SecureVaultUtils.toBytes(text);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault;
+
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.util.Optional;
+
+/**
+ * This class represents the outcome of encrypting or decrypting a single element of a batch. Each element either
+ * has an output, or the error it failed with, so that one failed element does not fail the whole batch.
+ *
+ * @since 5.0.23
+ */
+public class CipherResult {
+    private final byte[] output;
+    private final SecureVaultException error;
+
+    private CipherResult(byte[] output, SecureVaultException error) {
+        this.output = output;
+        this.error = error;
+    }
+
+    public static CipherResult success(byte[] output) {
+        return new CipherResult(output, null);
+    }
+
+    public static CipherResult failure(SecureVaultException error) {
+        return new CipherResult(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Get the output of the element.
+     *
+     * @return byte[]               cipher text or plain text of the element
+     * @throws SecureVaultException if the element failed, with the error of the element as the cause
+     */
+    public byte[] getOutput() throws SecureVaultException {
+        if (error != null) {
+            throw new SecureVaultException(error.getMessage(), error);
+        }
+        return output;
+    }
+
+    public Optional<SecureVaultException> getError() {
+        return Optional.ofNullable(error);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault;
+
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.model.MasterKeyReaderConfiguration;
+import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
+import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A secure vault configuration as read from a configuration file, with its placeholders not resolved yet. It is
+ * immutable once read, hence it can be shared, and each {@link #resolve()} creates a new
+ * {@link SecureVaultConfiguration} with the current values of the placeholders.
+ *
+ * @since 5.0.23
+ */
+final class ParsedSecureVaultConfiguration {
+    private Component secretRepository;
+    private Component masterKeyReader;
+
+    Component addSecretRepository() {
+        secretRepository = new Component();
+        return secretRepository;
+    }
+
+    Component addMasterKeyReader() {
+        masterKeyReader = new Component();
+        return masterKeyReader;
+    }
+
+    /**
+     * Create a secure vault configuration of this configuration, resolving its placeholders against a snapshot of
+     * the current environment variables and system properties.
+     *
+     * @return new secure vault configuration, which is owned by the caller
+     * @throws SecureVaultException if a placeholder has no value
+     */
+    SecureVaultConfiguration resolve() throws SecureVaultException {
+        PlaceholderResolver placeholderResolver = PlaceholderResolver.snapshot();
+        SecureVaultConfiguration secureVaultConfiguration = new SecureVaultConfiguration();
+        if (secretRepository != null) {
+            SecretRepositoryConfiguration secretRepositoryConfiguration = new SecretRepositoryConfiguration();
+            secretRepository.resolve(placeholderResolver, secretRepositoryConfiguration::setType,
+                    secretRepositoryConfiguration::setParameter);
+            secureVaultConfiguration.setSecretRepository(secretRepositoryConfiguration);
+        }
+        if (masterKeyReader != null) {
+            MasterKeyReaderConfiguration masterKeyReaderConfiguration = new MasterKeyReaderConfiguration();
+            masterKeyReader.resolve(placeholderResolver, masterKeyReaderConfiguration::setType,
+                    masterKeyReaderConfiguration::setParameter);
+            secureVaultConfiguration.setMasterKeyReader(masterKeyReaderConfiguration);
+        }
+        return secureVaultConfiguration;
+    }
+
+    /**
+     * The type and the parameters of a secret repository or a master key reader, with their placeholders not
+     * resolved yet. A null value stands for a null in the configuration file.
+     */
+    static final class Component {
+        private String type = "";
+        private final Map<String, String> parameters = new LinkedHashMap<>();
+
+        private Component() {
+        }
+
+        void setType(String type) {
+            this.type = type;
+        }
+
+        void setParameter(String key, String value) {
+            parameters.put(key, value);
+        }
+
+        private void resolve(PlaceholderResolver placeholderResolver, Consumer<String> typeConsumer,
+                             BiConsumer<String, String> parameterConsumer) throws SecureVaultException {
+            typeConsumer.accept(type == null ? null : placeholderResolver.resolve(type));
+            for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+                String value = parameter.getValue();
+                parameterConsumer.accept(parameter.getKey(), value == null ? null : placeholderResolver.resolve(value));
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Replaces placeholders of the form <code>${prefix:key}</code> in a string with the value of the key, which is looked
+ * up with the lookup function of the prefix. The <code>env</code> prefix looks up environment variables, and the
+ * <code>sys</code> prefix looks up system properties. Lookups of further prefixes can be added with
+ * {@link #withLookup(String, Function)}, and placeholders of prefixes without a lookup are left as they are.
+ * <p>
+ * A string is scanned once, into a template of its literal text and placeholders, and the templates of short strings
+ * are cached, hence a string which is resolved repeatedly is only scanned once. Strings which may hold secrets must
+ * be resolved with {@link #withoutTemplateCache()}, so that they are not retained by the cache.
+ *
+ * @since 5.0.23
+ */
+public final class PlaceholderResolver {
+    public static final String ENVIRONMENT_PREFIX = "env";
+    public static final String SYSTEM_PREFIX = "sys";
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaceholderResolver.class);
+    private static final int MAX_CACHED_TEMPLATES = 4096;
+    // Longer strings, such as whole configuration files, are seldom resolved again
+    private static final int MAX_CACHED_TEMPLATE_LENGTH = 4096;
+    private static final Template NO_PLACEHOLDERS = new Template(new String[0], new String[0], new String[0]);
+    private static final Map<String, Template> templates = new ConcurrentHashMap<>();
+    private static final PlaceholderResolver DEFAULT = new PlaceholderResolver(System::getenv, System::getProperty);
+
+    private final Map<String, Function<String, String>> lookups;
+    private final boolean cacheTemplates;
+
+    private PlaceholderResolver(Function<String, String> environmentLookup, Function<String, String> systemLookup) {
+        Map<String, Function<String, String>> defaultLookups = new HashMap<>();
+        defaultLookups.put(ENVIRONMENT_PREFIX, environmentLookup);
+        defaultLookups.put(SYSTEM_PREFIX, systemLookup);
+        this.lookups = Collections.unmodifiableMap(defaultLookups);
+        this.cacheTemplates = true;
+    }
+
+    private PlaceholderResolver(Map<String, Function<String, String>> lookups, boolean cacheTemplates) {
+        this.lookups = Collections.unmodifiableMap(lookups);
+        this.cacheTemplates = cacheTemplates;
+    }
+
+    /**
+     * Get the placeholder resolver which looks up the current environment variables and system properties.
+     *
+     * @return default placeholder resolver
+     */
+    public static PlaceholderResolver getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Create a placeholder resolver which looks up a snapshot of the environment variables and system properties, as
+     * of now. Resolving the many placeholders of a file with a snapshot avoids a lookup of the synchronized system
+     * properties for each placeholder, and resolves every placeholder of the file against the same properties.
+     *
+     * @return placeholder resolver over a snapshot of the environment variables and system properties
+     */
+    public static PlaceholderResolver snapshot() {
+        Map<String, String> systemProperties = new HashMap<>();
+        Properties properties = System.getProperties();
+        synchronized (properties) {
+            for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+                if (entry.getKey() instanceof String && entry.getValue() instanceof String) {
+                    systemProperties.put((String) entry.getKey(), (String) entry.getValue());
+                }
+            }
+        }
+        return new PlaceholderResolver(System.getenv()::get, systemProperties::get);
+    }
+
+    /**
+     * Create a placeholder resolver which also resolves the placeholders of the given prefix.
+     *
+     * @param prefix prefix of the placeholders, without the colon
+     * @param lookup function which returns the value of a key, or null if the key has no value
+     * @return placeholder resolver with the lookup of the given prefix
+     */
+    public PlaceholderResolver withLookup(String prefix, Function<String, String> lookup) {
+        Map<String, Function<String, String>> newLookups = new HashMap<>(lookups);
+        newLookups.put(prefix, lookup);
+        return new PlaceholderResolver(newLookups, cacheTemplates);
+    }
+
+    /**
+     * Create a placeholder resolver with the same lookups, which scans every string it resolves rather than caching
+     * the template of the string. Use it for strings which may hold secrets, such as the entries of a secrets file.
+     *
+     * @return placeholder resolver which does not cache templates
+     */
+    public PlaceholderResolver withoutTemplateCache() {
+        return cacheTemplates ? new PlaceholderResolver(lookups, false) : this;
+    }
+
+    /**
+     * Replace the placeholders in the given value.
+     *
+     * @param value value which may contain placeholders
+     * @return value with its placeholders replaced
+     * @throws SecureVaultException if a placeholder has no value
+     */
+    public String resolve(CharSequence value) throws SecureVaultException {
+        Template template = cacheTemplates ? getTemplate(value) : compile(value);
+        if (template == NO_PLACEHOLDERS) {
+            return value.toString();
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < template.prefixes.length; i++) {
+            builder.append(template.literals[i]);
+            Function<String, String> lookup = lookups.get(template.prefixes[i]);
+            if (lookup == null) {
+                builder.append("${").append(template.prefixes[i]).append(':').append(template.keys[i]).append('}');
+                continue;
+            }
+            String resolvedValue = lookup.apply(template.keys[i]);
+            if (StringUtils.isNullOrEmpty(resolvedValue)) {
+                String msg = "A value for placeholder '" + template.keys[i] + "' is not specified";
+                logger.error(msg);
+                throw new SecureVaultException(msg);
+            }
+            builder.append(resolvedValue);
+        }
+        return builder.append(template.literals[template.prefixes.length]).toString();
+    }
+
+    private static Template getTemplate(CharSequence value) {
+        if (!(value instanceof String) || value.length() > MAX_CACHED_TEMPLATE_LENGTH) {
+            return compile(value);
+        }
+        String key = (String) value;
+        if (key.indexOf("${") < 0) {
+            return NO_PLACEHOLDERS;
+        }
+        Template template = templates.get(key);
+        if (template == null) {
+            template = compile(key);
+            if (templates.size() >= MAX_CACHED_TEMPLATES) {
+                templates.clear();
+            }
+            templates.put(key, template);
+        }
+        return template;
+    }
+
+    static boolean isTemplateCached(String value) {
+        return templates.containsKey(value);
+    }
+
+    /**
+     * Scan the given value into the literal text and the placeholders in between.
+     */
+    private static Template compile(CharSequence value) {
+        List<String> literals = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int length = value.length();
+        int literalStart = 0;
+        int index = 0;
+        while (index < length - 1) {
+            if (value.charAt(index) != '$' || value.charAt(index + 1) != '{') {
+                index++;
+                continue;
+            }
+            int prefixEnd = getPrefixEnd(value, index + 2);
+            int keyEnd = prefixEnd < 0 ? -1 : indexOf(value, '}', prefixEnd + 1);
+            if (keyEnd < 0) {
+                index++;
+                continue;
+            }
+            literals.add(value.subSequence(literalStart, index).toString());
+            prefixes.add(value.subSequence(index + 2, prefixEnd).toString());
+            keys.add(value.subSequence(prefixEnd + 1, keyEnd).toString());
+            literalStart = keyEnd + 1;
+            index = literalStart;
+        }
+        if (prefixes.isEmpty()) {
+            return NO_PLACEHOLDERS;
+        }
+        literals.add(value.subSequence(literalStart, length).toString());
+        return new Template(literals.toArray(new String[0]), prefixes.toArray(new String[0]),
+                keys.toArray(new String[0]));
+    }
+
+    /**
+     * Find the colon which ends the prefix of a placeholder, given that a prefix is a non empty word.
+     */
+    private static int getPrefixEnd(CharSequence value, int fromIndex) {
+        for (int i = fromIndex; i < value.length(); i++) {
+            char current = value.charAt(i);
+            if (current == ':') {
+                return i > fromIndex ? i : -1;
+            } else if (!Character.isLetterOrDigit(current) && current != '.' && current != '-' && current != '_') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence value, char character, int fromIndex) {
+        for (int i = fromIndex; i < value.length(); i++) {
+            if (value.charAt(i) == character) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Literal text and placeholders of a string. The placeholder at an index follows the literal at the same index,
+     * and there is one more literal than placeholders.
+     */
+    private static class Template {
+        private final String[] literals;
+        private final String[] prefixes;
+        private final String[] keys;
+
+        private Template(String[] literals, String[] prefixes, String[] keys) {
+            this.literals = literals;
+            this.prefixes = prefixes;
+            this.keys = keys;
+        }
+    }
+}
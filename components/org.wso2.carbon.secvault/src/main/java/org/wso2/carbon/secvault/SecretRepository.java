@@ -19,6 +19,20 @@ package org.wso2.carbon.secvault;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
 import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
 /**
  * This interface is used to register SecretRepositories. An implementation of this interface should be registered
  * as an OSGi service using the SecretRepository interface.
@@ -66,6 +80,59 @@ public interface SecretRepository {
      */
     char[] resolve(String alias);
 
+    /**
+     * An implementation of this method should copy the plain text secret for a given alias into the given array,
+     * without allocating a new array. The default implementation adapts to {@link #resolve(String)}.
+     *
+     * @param alias       alias of the secret
+     * @param destination array to copy the plain text secret to, starting at index 0
+     * @return length of the plain text secret, which is 0 if the given alias is not available
+     * @throws SecureVaultException if the destination array is too small for the secret
+     * @since 5.0.23
+     */
+    default int resolveInto(String alias, char[] destination) throws SecureVaultException {
+        char[] secret = resolve(alias);
+        if (secret.length > destination.length) {
+            throw new SecureVaultException("Destination array is too small, '" + secret.length + "' characters " +
+                    "are required but only '" + destination.length + "' are available");
+        }
+        System.arraycopy(secret, 0, destination, 0, secret.length);
+        return secret.length;
+    }
+
+    /**
+     * An implementation of this method should apply the given function to a read-only view of the plain text secret
+     * for a given alias, without copying it. The view is only valid while the function runs, and must not be
+     * retained. The default implementation adapts to {@link #resolve(String)}.
+     *
+     * @param alias    alias of the secret
+     * @param function function to apply to the secret, which is given an empty view if the alias is not available
+     * @param <T>      type of the result of the function
+     * @return result of the function
+     * @since 5.0.23
+     */
+    default <T> T withSecret(String alias, Function<CharBuffer, T> function) {
+        return function.apply(CharBuffer.wrap(resolve(alias)).asReadOnlyBuffer());
+    }
+
+    /**
+     * An implementation of this method should resolve all the given aliases in a single call, so that secrets which
+     * are not decrypted yet can be decrypted or fetched together. The default implementation adapts to
+     * {@link #resolve(String)}.
+     *
+     * @param aliases aliases of the secrets
+     * @return map of each given alias to its plain text secret, which is an empty array if the alias is not
+     * available, in the iteration order of the given aliases
+     * @since 5.0.23
+     */
+    default Map<String, char[]> resolveAll(Collection<String> aliases) {
+        Map<String, char[]> secrets = new LinkedHashMap<>();
+        for (String alias : aliases) {
+            secrets.computeIfAbsent(alias, this::resolve);
+        }
+        return secrets;
+    }
+
     /**
      * An implementation of this method should provide the relevant encryption logic.
      *
@@ -83,4 +150,152 @@ public interface SecretRepository {
      * @throws SecureVaultException on an error while trying to encrypt.
      */
     byte[] decrypt(byte[] cipherText) throws SecureVaultException;
+
+    /**
+     * An implementation of this method should encrypt all the given plain texts, possibly in parallel. The default
+     * implementation adapts to {@link #encrypt(byte[])}.
+     *
+     * @param plainTexts plain texts to encrypt
+     * @return result of each plain text, in the order of the given plain texts
+     * @throws SecureVaultException on an error which fails the whole batch
+     * @since 5.0.23
+     */
+    default List<CipherResult> encryptBatch(List<byte[]> plainTexts) throws SecureVaultException {
+        List<CipherResult> results = new ArrayList<>(plainTexts.size());
+        for (byte[] plainText : plainTexts) {
+            try {
+                results.add(CipherResult.success(encrypt(plainText)));
+            } catch (SecureVaultException e) {
+                results.add(CipherResult.failure(e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * An implementation of this method should decrypt all the given cipher texts, possibly in parallel. The default
+     * implementation adapts to {@link #decrypt(byte[])}.
+     *
+     * @param cipherTexts cipher texts to decrypt
+     * @return result of each cipher text, in the order of the given cipher texts
+     * @throws SecureVaultException on an error which fails the whole batch
+     * @since 5.0.23
+     */
+    default List<CipherResult> decryptBatch(List<byte[]> cipherTexts) throws SecureVaultException {
+        List<CipherResult> results = new ArrayList<>(cipherTexts.size());
+        for (byte[] cipherText : cipherTexts) {
+            try {
+                results.add(CipherResult.success(decrypt(cipherText)));
+            } catch (SecureVaultException e) {
+                results.add(CipherResult.failure(e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * An implementation of this method should encrypt the remaining bytes of {@code plainText} directly into
+     * {@code cipherText}. The default implementation adapts to {@link #encrypt(byte[])}.
+     *
+     * @param plainText  plain text buffer, its position is advanced to its limit on success
+     * @param cipherText buffer to write the cipher text to, its position is advanced by the bytes written
+     * @return number of bytes written to {@code cipherText}
+     * @throws SecureVaultException on an error while trying to encrypt, or if {@code cipherText} is too small
+     * @since 5.0.23
+     */
+    default int encrypt(ByteBuffer plainText, ByteBuffer cipherText) throws SecureVaultException {
+        byte[] input = new byte[plainText.remaining()];
+        plainText.duplicate().get(input);
+        byte[] output = encrypt(input);
+        if (cipherText.remaining() < output.length) {
+            throw new SecureVaultException("Output buffer is too small, '" + output.length + "' bytes are " +
+                    "required but only '" + cipherText.remaining() + "' bytes are remaining");
+        }
+        cipherText.put(output);
+        plainText.position(plainText.limit());
+        return output.length;
+    }
+
+    /**
+     * An implementation of this method should decrypt the remaining bytes of {@code cipherText} directly into
+     * {@code plainText}. The default implementation adapts to {@link #decrypt(byte[])}.
+     *
+     * @param cipherText cipher text buffer, its position is advanced to its limit on success
+     * @param plainText  buffer to write the plain text to, its position is advanced by the bytes written
+     * @return number of bytes written to {@code plainText}
+     * @throws SecureVaultException on an error while trying to decrypt, or if {@code plainText} is too small
+     * @since 5.0.23
+     */
+    default int decrypt(ByteBuffer cipherText, ByteBuffer plainText) throws SecureVaultException {
+        byte[] input = new byte[cipherText.remaining()];
+        cipherText.duplicate().get(input);
+        byte[] output = decrypt(input);
+        if (plainText.remaining() < output.length) {
+            throw new SecureVaultException("Output buffer is too small, '" + output.length + "' bytes are " +
+                    "required but only '" + plainText.remaining() + "' bytes are remaining");
+        }
+        plainText.put(output);
+        cipherText.position(cipherText.limit());
+        return output.length;
+    }
+
+    /**
+     * An implementation of this method should encrypt the given plain text channel into the given cipher text
+     * channel with constant memory, so that payloads of any size can be encrypted. The default implementation reads
+     * the whole plain text and adapts to {@link #encrypt(byte[])}.
+     *
+     * @param plainText  blocking channel to read the plain text from, until its end
+     * @param cipherText blocking channel to write the cipher text to
+     * @return number of bytes written to {@code cipherText}
+     * @throws SecureVaultException on an error while trying to encrypt, or on an I/O error
+     * @since 5.0.23
+     */
+    default long encrypt(ReadableByteChannel plainText, WritableByteChannel cipherText) throws SecureVaultException {
+        return SecureVaultUtils.writeFully(cipherText, encrypt(SecureVaultUtils.readFully(plainText)));
+    }
+
+    /**
+     * An implementation of this method should decrypt the given cipher text channel, which is encrypted by
+     * {@link #encrypt(ReadableByteChannel, WritableByteChannel)}, into the given plain text channel with constant
+     * memory. The default implementation reads the whole cipher text and adapts to {@link #decrypt(byte[])}.
+     *
+     * @param cipherText blocking channel to read the cipher text from, until its end
+     * @param plainText  blocking channel to write the plain text to
+     * @return number of bytes written to {@code plainText}
+     * @throws SecureVaultException on an error while trying to decrypt, or on an I/O error, in which case any
+     *                              plain text which is already written must be discarded
+     * @since 5.0.23
+     */
+    default long decrypt(ReadableByteChannel cipherText, WritableByteChannel plainText) throws SecureVaultException {
+        return SecureVaultUtils.writeFully(plainText, decrypt(SecureVaultUtils.readFully(cipherText)));
+    }
+
+    /**
+     * Encrypt the given plain text stream into the given cipher text stream. The default implementation adapts to
+     * {@link #encrypt(ReadableByteChannel, WritableByteChannel)}, and neither stream is closed or flushed.
+     *
+     * @param plainText  stream to read the plain text from, until its end
+     * @param cipherText stream to write the cipher text to
+     * @return number of bytes written to {@code cipherText}
+     * @throws SecureVaultException on an error while trying to encrypt, or on an I/O error
+     * @since 5.0.23
+     */
+    default long encrypt(InputStream plainText, OutputStream cipherText) throws SecureVaultException {
+        return encrypt(Channels.newChannel(plainText), Channels.newChannel(cipherText));
+    }
+
+    /**
+     * Decrypt the given cipher text stream into the given plain text stream. The default implementation adapts to
+     * {@link #decrypt(ReadableByteChannel, WritableByteChannel)}, and neither stream is closed or flushed.
+     *
+     * @param cipherText stream to read the cipher text from, until its end
+     * @param plainText  stream to write the plain text to
+     * @return number of bytes written to {@code plainText}
+     * @throws SecureVaultException on an error while trying to decrypt, or on an I/O error, in which case any
+     *                              plain text which is already written must be discarded
+     * @since 5.0.23
+     */
+    default long decrypt(InputStream cipherText, OutputStream plainText) throws SecureVaultException {
+        return decrypt(Channels.newChannel(cipherText), Channels.newChannel(plainText));
+    }
 }
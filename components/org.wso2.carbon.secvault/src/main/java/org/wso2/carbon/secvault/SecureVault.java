@@ -18,6 +18,21 @@ package org.wso2.carbon.secvault;
 
 import org.wso2.carbon.secvault.exception.SecureVaultException;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
 /**
  * This interface is used to register SecureVault.
  * Any component that needs SecureVault capabilities should depend on this interface.
@@ -35,6 +50,62 @@ public interface SecureVault {
      */
     char[] resolve(String alias) throws SecureVaultException;
 
+    /**
+     * Resolves the given alias into the given array, without allocating a new array. The default implementation adapts
+     * to {@link #resolve(String)}.
+     *
+     * @param alias       alias of the secret
+     * @param destination array to copy the plain text password to, starting at index 0
+     * @return            length of the plain text password, which is 0 if the alias does not exist
+     * @throws SecureVaultException on an error while trying to resolve, or if the destination array is too small.
+     * @since 5.0.23
+     */
+    default int resolveInto(String alias, char[] destination) throws SecureVaultException {
+        char[] secret = resolve(alias);
+        if (secret.length > destination.length) {
+            throw new SecureVaultException("Destination array is too small, '" + secret.length + "' characters " +
+                    "are required but only '" + destination.length + "' are available");
+        }
+        System.arraycopy(secret, 0, destination, 0, secret.length);
+        return secret.length;
+    }
+
+    /**
+     * Resolves the given alias and applies the given function to a read-only view of the plain text password. The
+     * view is only valid while the function runs, and must not be retained. The default implementation adapts to
+     * {@link #resolve(String)}.
+     *
+     * @param alias    alias of the secret
+     * @param function function to apply to the plain text password, which is given an empty view if the alias does
+     *                 not exist
+     * @param <T>      type of the result of the function
+     * @return         result of the function
+     * @throws SecureVaultException on an error while trying to resolve.
+     * @since 5.0.23
+     */
+    default <T> T withSecret(String alias, Function<CharBuffer, T> function) throws SecureVaultException {
+        return function.apply(CharBuffer.wrap(resolve(alias)).asReadOnlyBuffer());
+    }
+
+    /**
+     * Resolves all the given aliases in a single call. The default implementation adapts to {@link #resolve(String)}.
+     *
+     * @param aliases aliases of the secrets
+     * @return        map of each given alias to its plain text password, which is an empty array if the alias does
+     *                not exist, in the iteration order of the given aliases
+     * @throws SecureVaultException on an error while trying to resolve.
+     * @since 5.0.23
+     */
+    default Map<String, char[]> resolveAll(Collection<String> aliases) throws SecureVaultException {
+        Map<String, char[]> secrets = new LinkedHashMap<>();
+        for (String alias : aliases) {
+            if (!secrets.containsKey(alias)) {
+                secrets.put(alias, resolve(alias));
+            }
+        }
+        return secrets;
+    }
+
     /**
      * An implementation of this method should delegate the encryption to the underlying {@link SecretRepository}
      * and get the {@code plainText} encrypted.
@@ -54,4 +125,170 @@ public interface SecureVault {
      * @throws SecureVaultException on an error while trying to decrypt.
      */
     byte[] decrypt(byte[] cipherText) throws SecureVaultException;
+
+    /**
+     * An implementation of this method should delegate the encryption of all the given {@code plainTexts} to the
+     * underlying {@link SecretRepository}. A failure to encrypt a single plain text is reported in its result. The
+     * default implementation adapts to {@link #encrypt(byte[])}.
+     *
+     * @param plainTexts            plain texts as byte arrays
+     * @return List                 result of each plain text, in the order of the given plain texts
+     * @throws SecureVaultException on an error which fails the whole batch.
+     * @since 5.0.23
+     */
+    default List<CipherResult> encryptBatch(List<byte[]> plainTexts) throws SecureVaultException {
+        List<CipherResult> results = new ArrayList<>(plainTexts.size());
+        for (byte[] plainText : plainTexts) {
+            try {
+                results.add(CipherResult.success(encrypt(plainText)));
+            } catch (SecureVaultException e) {
+                results.add(CipherResult.failure(e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * An implementation of this method should delegate the decryption of all the given {@code cipherTexts} to the
+     * underlying {@link SecretRepository}. A failure to decrypt a single cipher text is reported in its result. The
+     * default implementation adapts to {@link #decrypt(byte[])}.
+     *
+     * @param cipherTexts           cipher texts as byte arrays
+     * @return List                 result of each cipher text, in the order of the given cipher texts
+     * @throws SecureVaultException on an error which fails the whole batch.
+     * @since 5.0.23
+     */
+    default List<CipherResult> decryptBatch(List<byte[]> cipherTexts) throws SecureVaultException {
+        List<CipherResult> results = new ArrayList<>(cipherTexts.size());
+        for (byte[] cipherText : cipherTexts) {
+            try {
+                results.add(CipherResult.success(decrypt(cipherText)));
+            } catch (SecureVaultException e) {
+                results.add(CipherResult.failure(e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * An implementation of this method should delegate the encryption to the underlying {@link SecretRepository}
+     * and get the remaining bytes of {@code plainText} encrypted into {@code cipherText}. Direct buffers avoid any
+     * intermediate copies in the default secret repository. The default implementation adapts to
+     * {@link #encrypt(byte[])}.
+     *
+     * @param plainText             plain text buffer
+     * @param cipherText            buffer to write the cipher text to
+     * @return int                  number of bytes written to {@code cipherText}
+     * @throws SecureVaultException on an error while trying to encrypt.
+     * @since 5.0.23
+     */
+    default int encrypt(ByteBuffer plainText, ByteBuffer cipherText) throws SecureVaultException {
+        byte[] input = new byte[plainText.remaining()];
+        plainText.duplicate().get(input);
+        byte[] output = encrypt(input);
+        if (cipherText.remaining() < output.length) {
+            throw new SecureVaultException("Output buffer is too small, '" + output.length + "' bytes are " +
+                    "required but only '" + cipherText.remaining() + "' bytes are remaining");
+        }
+        cipherText.put(output);
+        plainText.position(plainText.limit());
+        return output.length;
+    }
+
+    /**
+     * An implementation of this method should delegate the decryption to the underlying {@link SecretRepository}
+     * and get the remaining bytes of {@code cipherText} decrypted into {@code plainText}. The default implementation
+     * adapts to {@link #decrypt(byte[])}.
+     *
+     * @param cipherText            cipher text buffer
+     * @param plainText             buffer to write the plain text to
+     * @return int                  number of bytes written to {@code plainText}
+     * @throws SecureVaultException on an error while trying to decrypt.
+     * @since 5.0.23
+     */
+    default int decrypt(ByteBuffer cipherText, ByteBuffer plainText) throws SecureVaultException {
+        byte[] input = new byte[cipherText.remaining()];
+        cipherText.duplicate().get(input);
+        byte[] output = decrypt(input);
+        if (plainText.remaining() < output.length) {
+            throw new SecureVaultException("Output buffer is too small, '" + output.length + "' bytes are " +
+                    "required but only '" + plainText.remaining() + "' bytes are remaining");
+        }
+        plainText.put(output);
+        cipherText.position(cipherText.limit());
+        return output.length;
+    }
+
+    /**
+     * An implementation of this method should delegate the encryption to the underlying {@link SecretRepository}
+     * and get the {@code plainText} stream encrypted into {@code cipherText}, chunk by chunk. The default
+     * implementation adapts to {@link #encrypt(ReadableByteChannel, WritableByteChannel)}.
+     *
+     * @param plainText             stream to read the plain text from, until its end
+     * @param cipherText            stream to write the cipher text to, which is neither closed nor flushed
+     * @return long                 number of bytes written to {@code cipherText}
+     * @throws SecureVaultException on an error while trying to encrypt.
+     * @since 5.0.23
+     */
+    default long encrypt(InputStream plainText, OutputStream cipherText) throws SecureVaultException {
+        return encrypt(Channels.newChannel(plainText), Channels.newChannel(cipherText));
+    }
+
+    /**
+     * An implementation of this method should delegate the decryption to the underlying {@link SecretRepository}
+     * and get the {@code cipherText} stream decrypted into {@code plainText}, chunk by chunk. The default
+     * implementation adapts to {@link #decrypt(ReadableByteChannel, WritableByteChannel)}.
+     *
+     * @param cipherText            stream to read the cipher text from, until its end
+     * @param plainText             stream to write the plain text to, which is neither closed nor flushed
+     * @return long                 number of bytes written to {@code plainText}
+     * @throws SecureVaultException on an error while trying to decrypt, in which case any plain text which is
+     *                              already written must be discarded.
+     * @since 5.0.23
+     */
+    default long decrypt(InputStream cipherText, OutputStream plainText) throws SecureVaultException {
+        return decrypt(Channels.newChannel(cipherText), Channels.newChannel(plainText));
+    }
+
+    /**
+     * An implementation of this method should delegate the encryption to the underlying {@link SecretRepository}
+     * and get the {@code plainText} channel encrypted into {@code cipherText}, chunk by chunk. The default
+     * implementation reads the whole plain text and adapts to {@link #encrypt(byte[])}.
+     *
+     * @param plainText             blocking channel to read the plain text from, until its end
+     * @param cipherText            blocking channel to write the cipher text to
+     * @return long                 number of bytes written to {@code cipherText}
+     * @throws SecureVaultException on an error while trying to encrypt.
+     * @since 5.0.23
+     */
+    default long encrypt(ReadableByteChannel plainText, WritableByteChannel cipherText) throws SecureVaultException {
+        return SecureVaultUtils.writeFully(cipherText, encrypt(SecureVaultUtils.readFully(plainText)));
+    }
+
+    /**
+     * An implementation of this method should delegate the decryption to the underlying {@link SecretRepository}
+     * and get the {@code cipherText} channel decrypted into {@code plainText}, chunk by chunk. The default
+     * implementation reads the whole cipher text and adapts to {@link #decrypt(byte[])}.
+     *
+     * @param cipherText            blocking channel to read the cipher text from, until its end
+     * @param plainText             blocking channel to write the plain text to
+     * @return long                 number of bytes written to {@code plainText}
+     * @throws SecureVaultException on an error while trying to decrypt, in which case any plain text which is
+     *                              already written must be discarded.
+     * @since 5.0.23
+     */
+    default long decrypt(ReadableByteChannel cipherText, WritableByteChannel plainText) throws SecureVaultException {
+        return SecureVaultUtils.writeFully(plainText, decrypt(SecureVaultUtils.readFully(cipherText)));
+    }
+
+    /**
+     * Get the timeline of the initialization of this secure vault, with the duration of each phase, such as loading
+     * the key store and decrypting the secrets. The default implementation records no timeline.
+     *
+     * @return timeline of the initialization, if it was recorded
+     * @since 5.0.23
+     */
+    default Optional<StartupTimeline> getStartupTimeline() {
+        return Optional.empty();
+    }
 }
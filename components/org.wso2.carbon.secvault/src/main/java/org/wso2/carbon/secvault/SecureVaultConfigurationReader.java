@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault;
+
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.wso2.carbon.secvault.SecureVaultConstants.SECUREVAULT_NAMESPACE;
+import static org.wso2.carbon.secvault.SecureVaultConstants.STREAMLINED_SECUREVAULT_NAMESPACE;
+
+/**
+ * Reads the secure vault configuration from the YAML events of a configuration file in a single pass. Sections of
+ * the file other than the secure vault configuration are skipped without being built. Placeholders in the
+ * configuration values are retained, and are resolved by {@link ParsedSecureVaultConfiguration#resolve()}.
+ * <p>
+ * An alias is read as if the node of its anchor was repeated in its place, as when the file is loaded as a whole.
+ * Merge keys are not supported in the secure vault configuration and are rejected.
+ *
+ * @since 5.0.23
+ */
+final class SecureVaultConfigurationReader {
+    private static final String SECRET_REPOSITORY = "secretRepository";
+    private static final String MASTER_KEY_READER = "masterKeyReader";
+    private static final String TYPE = "type";
+    private static final String PARAMETERS = "parameters";
+
+    private final AliasExpandingParser parser;
+    private final Resolver resolver = new Resolver();
+
+    private SecureVaultConfigurationReader(Reader reader) {
+        LoaderOptions loaderOptions = new LoaderOptions();
+        this.parser = new AliasExpandingParser(new ParserImpl(new StreamReader(reader), loaderOptions),
+                loaderOptions.getMaxAliasesForCollections());
+    }
+
+    /**
+     * Read the secure vault configuration from the given reader.
+     *
+     * @param reader     reader of the configuration file
+     * @param namespaced whether the configuration is under the securevault (or wso2.securevault) key of the file,
+     *                   rather than being the whole file
+     * @return secure vault configuration with its placeholders not resolved, or an empty {@link Optional} if the file
+     * has no secure vault configuration
+     * @throws SecureVaultException if the file is not valid YAML or the configuration is malformed
+     */
+    static Optional<ParsedSecureVaultConfiguration> read(Reader reader, boolean namespaced)
+            throws SecureVaultException {
+        try {
+            return new SecureVaultConfigurationReader(reader).readDocument(namespaced);
+        } catch (YAMLException e) {
+            throw new SecureVaultException("Failed to parse the secure vault configuration", e);
+        }
+    }
+
+    private Optional<ParsedSecureVaultConfiguration> readDocument(boolean namespaced) throws SecureVaultException {
+        expect(Event.ID.StreamStart);
+        if (parser.checkEvent(Event.ID.StreamEnd) || !parser.checkEvent(Event.ID.DocumentStart)) {
+            return Optional.empty();
+        }
+        parser.getEvent();
+        if (!parser.checkEvent(Event.ID.MappingStart)) {
+            if (isNull(parser.peekEvent())) {
+                return Optional.empty();
+            }
+            throw error("Secure vault configuration file must be a mapping", parser.peekEvent());
+        }
+        if (!namespaced) {
+            return Optional.of(readSecureVaultConfiguration());
+        }
+
+        parser.getEvent();
+        ParsedSecureVaultConfiguration secureVaultConfiguration = null;
+        while (!parser.checkEvent(Event.ID.MappingEnd)) {
+            String key = readKey();
+            // The streamlined namespace takes precedence, hence the rest of the file need not be read once found
+            if (STREAMLINED_SECUREVAULT_NAMESPACE.equals(key) && !isNull(parser.peekEvent())) {
+                return Optional.of(readSecureVaultConfiguration());
+            } else if (SECUREVAULT_NAMESPACE.equals(key) && !isNull(parser.peekEvent())) {
+                secureVaultConfiguration = readSecureVaultConfiguration();
+            } else {
+                skipNode();
+            }
+        }
+        return Optional.ofNullable(secureVaultConfiguration);
+    }
+
+    private ParsedSecureVaultConfiguration readSecureVaultConfiguration() throws SecureVaultException {
+        ParsedSecureVaultConfiguration secureVaultConfiguration = new ParsedSecureVaultConfiguration();
+        expect(Event.ID.MappingStart);
+        while (!parser.checkEvent(Event.ID.MappingEnd)) {
+            Event keyEvent = parser.peekEvent();
+            String key = readConfigurationKey();
+            if (SECRET_REPOSITORY.equals(key)) {
+                ParsedSecureVaultConfiguration.Component secretRepository =
+                        secureVaultConfiguration.addSecretRepository();
+                readComponentConfiguration(secretRepository::setType, secretRepository::setParameter);
+            } else if (MASTER_KEY_READER.equals(key)) {
+                ParsedSecureVaultConfiguration.Component masterKeyReader =
+                        secureVaultConfiguration.addMasterKeyReader();
+                readComponentConfiguration(masterKeyReader::setType, masterKeyReader::setParameter);
+            } else {
+                throw error("Unknown secure vault configuration '" + key + "'", keyEvent);
+            }
+        }
+        parser.getEvent();
+        return secureVaultConfiguration;
+    }
+
+    private void readComponentConfiguration(Consumer<String> typeConsumer,
+                                            BiConsumer<String, String> parameterConsumer) throws SecureVaultException {
+        if (isNull(parser.peekEvent())) {
+            parser.getEvent();
+            return;
+        }
+        expect(Event.ID.MappingStart);
+        while (!parser.checkEvent(Event.ID.MappingEnd)) {
+            Event keyEvent = parser.peekEvent();
+            String key = readConfigurationKey();
+            if (TYPE.equals(key)) {
+                typeConsumer.accept(readValue());
+            } else if (PARAMETERS.equals(key)) {
+                if (isNull(parser.peekEvent())) {
+                    parser.getEvent();
+                    continue;
+                }
+                expect(Event.ID.MappingStart);
+                while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                    String parameter = readConfigurationKey();
+                    parameterConsumer.accept(parameter, readValue());
+                }
+                parser.getEvent();
+            } else {
+                throw error("Unknown secure vault configuration '" + key + "'", keyEvent);
+            }
+        }
+        parser.getEvent();
+    }
+
+    private String readKey() throws SecureVaultException {
+        Event event = parser.getEvent();
+        if (!event.is(Event.ID.Scalar)) {
+            throw error("Expected a scalar key", event);
+        }
+        return ((ScalarEvent) event).getValue();
+    }
+
+    private String readConfigurationKey() throws SecureVaultException {
+        Event keyEvent = parser.peekEvent();
+        String key = readKey();
+        if (((ScalarEvent) keyEvent).getImplicit().canOmitTagInPlainScalar() &&
+                Tag.MERGE.equals(resolver.resolve(NodeId.scalar, key, true))) {
+            throw error("Merge keys are not supported in the secure vault configuration", keyEvent);
+        }
+        return key;
+    }
+
+    private String readValue() throws SecureVaultException {
+        Event event = parser.getEvent();
+        if (!event.is(Event.ID.Scalar)) {
+            throw error("Expected a scalar value", event);
+        }
+        return isNull(event) ? null : ((ScalarEvent) event).getValue();
+    }
+
+    private void skipNode() throws SecureVaultException {
+        int depth = 0;
+        do {
+            Event event = parser.getEvent();
+            if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+                depth++;
+            } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private boolean isNull(Event event) {
+        if (!event.is(Event.ID.Scalar)) {
+            return false;
+        }
+        ScalarEvent scalarEvent = (ScalarEvent) event;
+        return scalarEvent.getImplicit().canOmitTagInPlainScalar() &&
+                Tag.NULL.equals(resolver.resolve(NodeId.scalar, scalarEvent.getValue(), true));
+    }
+
+    private void expect(Event.ID id) throws SecureVaultException {
+        Event event = parser.getEvent();
+        if (!event.is(id)) {
+            throw error("Expected " + id + " but found " + event.getEventId(), event);
+        }
+    }
+
+    private static SecureVaultException error(String message, Event event) {
+        Mark mark = event.getStartMark();
+        return new SecureVaultException(mark == null ? message :
+                message + " at line " + (mark.getLine() + 1) + ", column " + (mark.getColumn() + 1));
+    }
+
+    /**
+     * Reads the events of a parser, in which each alias is replaced by the events of the node of its anchor. The
+     * events of every anchored node are recorded as they are read, including the nodes of skipped sections, since an
+     * alias may refer to an anchor anywhere before it in the file.
+     */
+    private static final class AliasExpandingParser {
+        private final Parser parser;
+        private final int maxAliasesForCollections;
+        private final Map<String, List<Event>> anchoredNodes = new HashMap<>();
+        private final List<Recording> recordings = new ArrayList<>();
+        private final Deque<Event> replayedEvents = new ArrayDeque<>();
+        private int collectionAliasCount;
+
+        private AliasExpandingParser(Parser parser, int maxAliasesForCollections) {
+            this.parser = parser;
+            this.maxAliasesForCollections = maxAliasesForCollections;
+        }
+
+        private boolean checkEvent(Event.ID id) throws SecureVaultException {
+            return peekEvent().is(id);
+        }
+
+        private Event peekEvent() throws SecureVaultException {
+            if (replayedEvents.isEmpty() && parser.checkEvent(Event.ID.Alias)) {
+                expandAlias((AliasEvent) parser.getEvent());
+            }
+            return replayedEvents.isEmpty() ? parser.peekEvent() : replayedEvents.peek();
+        }
+
+        private Event getEvent() throws SecureVaultException {
+            peekEvent();
+            boolean replayed = !replayedEvents.isEmpty();
+            Event event = replayed ? replayedEvents.poll() : parser.getEvent();
+            record(event);
+            // The anchors of replayed events are already recorded
+            if (!replayed && event instanceof NodeEvent && ((NodeEvent) event).getAnchor() != null) {
+                Recording recording = new Recording(((NodeEvent) event).getAnchor());
+                recording.add(event);
+                if (recording.isComplete()) {
+                    anchoredNodes.put(recording.anchor, recording.events);
+                } else {
+                    recordings.add(recording);
+                }
+            }
+            return event;
+        }
+
+        private void expandAlias(AliasEvent aliasEvent) throws SecureVaultException {
+            List<Event> events = anchoredNodes.get(aliasEvent.getAnchor());
+            if (events == null) {
+                throw error("Found undefined alias '" + aliasEvent.getAnchor() + "'", aliasEvent);
+            }
+            // Bounds the expansion of nested aliases, as when the file is loaded as a whole
+            if (!events.get(0).is(Event.ID.Scalar) && ++collectionAliasCount > maxAliasesForCollections) {
+                throw error("Number of aliases for non-scalar nodes exceeds the specified max="
+                        + maxAliasesForCollections, aliasEvent);
+            }
+            replayedEvents.addAll(events);
+        }
+
+        private void record(Event event) {
+            Iterator<Recording> iterator = recordings.iterator();
+            while (iterator.hasNext()) {
+                Recording recording = iterator.next();
+                recording.add(event);
+                if (recording.isComplete()) {
+                    anchoredNodes.put(recording.anchor, recording.events);
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * The events of an anchored node, which are recorded until the end of the node.
+     */
+    private static final class Recording {
+        private final String anchor;
+        private final List<Event> events = new ArrayList<>();
+        private int depth;
+
+        private Recording(String anchor) {
+            this.anchor = anchor;
+        }
+
+        private void add(Event event) {
+            events.add(event);
+            if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+                depth++;
+            } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                depth--;
+            }
+        }
+
+        private boolean isComplete() {
+            return depth == 0;
+        }
+    }
+}
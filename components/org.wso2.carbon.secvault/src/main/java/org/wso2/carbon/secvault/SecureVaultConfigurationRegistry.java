@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the secure vault configurations read from configuration files, so that a configuration file which is
+ * shared by the bundle activator, the secure vault component and the secure vault factory is parsed only once.
+ * <p>
+ * A configuration is keyed by the path of its file, and is handed out again as long as the modification time and the
+ * size of the file are unchanged. Once they change, the file is read and its content hash is compared, hence the file
+ * is only parsed again if its content has changed.
+ * <p>
+ * The registry retains the parsed configuration with its placeholders not resolved. The placeholders are resolved
+ * on every {@link #getSecureVaultConfig(Path)}, which returns a new configuration, hence a caller sees the current
+ * values of the placeholders and may modify the configuration it gets without affecting other callers.
+ *
+ * @since 5.0.23
+ */
+public final class SecureVaultConfigurationRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(SecureVaultConfigurationRegistry.class);
+    private static final SecureVaultConfigurationRegistry instance = new SecureVaultConfigurationRegistry();
+    private static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    private SecureVaultConfigurationRegistry() {
+    }
+
+    /**
+     * Get secure vault configuration registry instance.
+     *
+     * @return secure vault configuration registry instance
+     */
+    public static SecureVaultConfigurationRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the secure vault configuration of the given configuration file, which is only parsed if it is not
+     * registered yet, or if its content has changed since it was parsed. Placeholders are resolved on each call.
+     *
+     * @param secureVaultConfigPath secure vault configuration file path
+     * @return new secure vault configuration of the file, which is owned by the caller
+     * @throws SecureVaultException if the file cannot be read, has no valid secure vault configuration, or a
+     *                              placeholder has no value
+     */
+    public Optional<SecureVaultConfiguration> getSecureVaultConfig(Path secureVaultConfigPath)
+            throws SecureVaultException {
+        Optional<ParsedSecureVaultConfiguration> parsedConfiguration =
+                getParsedSecureVaultConfig(secureVaultConfigPath);
+        return parsedConfiguration.isPresent() ? Optional.of(parsedConfiguration.get().resolve()) : Optional.empty();
+    }
+
+    /**
+     * Get the parsed secure vault configuration of the given configuration file, parsing the file if it is not
+     * registered yet, or if its content has changed since it was parsed.
+     */
+    Optional<ParsedSecureVaultConfiguration> getParsedSecureVaultConfig(Path secureVaultConfigPath)
+            throws SecureVaultException {
+        Path path = secureVaultConfigPath.toAbsolutePath().normalize();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long modifiedTime = attributes.lastModifiedTime().toMillis();
+            Entry entry = entries.get(path);
+            if (entry != null && entry.modifiedTime == modifiedTime && entry.size == attributes.size()) {
+                return entry.secureVaultConfiguration;
+            }
+            synchronized (this) {
+                entry = entries.get(path);
+                if (entry != null && entry.modifiedTime == modifiedTime && entry.size == attributes.size()) {
+                    return entry.secureVaultConfiguration;
+                }
+                byte[] content = Files.readAllBytes(path);
+                byte[] contentHash = getContentHash(content);
+                if (entry != null && Arrays.equals(entry.contentHash, contentHash)) {
+                    logger.debug("Secure vault configuration file {} is modified without changes to its content.",
+                            path);
+                    entry = new Entry(modifiedTime, content.length, contentHash, entry.secureVaultConfiguration);
+                } else {
+                    logger.debug("Parsing secure vault configuration file {}", path);
+                    entry = new Entry(modifiedTime, content.length, contentHash,
+                            SecureVaultUtils.parseSecureVaultConfig(path, content));
+                }
+                entries.put(path, entry);
+                return entry.secureVaultConfiguration;
+            }
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to read filepath : " + secureVaultConfigPath, e);
+        }
+    }
+
+    /**
+     * Remove the secure vault configuration of the given configuration file, so that the file is parsed again on the
+     * next call to {@link #getSecureVaultConfig(Path)}.
+     *
+     * @param secureVaultConfigPath secure vault configuration file path
+     */
+    public void invalidate(Path secureVaultConfigPath) {
+        entries.remove(secureVaultConfigPath.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Remove the secure vault configurations of all configuration files.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private static byte[] getContentHash(byte[] content) throws SecureVaultException {
+        try {
+            return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM).digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new SecureVaultException("Failed to hash the secure vault configuration", e);
+        }
+    }
+
+    /**
+     * Parsed secure vault configuration of a configuration file, with the state of the file it was parsed from.
+     */
+    private static class Entry {
+        private final long modifiedTime;
+        private final long size;
+        private final byte[] contentHash;
+        private final Optional<ParsedSecureVaultConfiguration> secureVaultConfiguration;
+
+        private Entry(long modifiedTime, long size, byte[] contentHash,
+                      Optional<ParsedSecureVaultConfiguration> secureVaultConfiguration) {
+            this.modifiedTime = modifiedTime;
+            this.size = size;
+            this.contentHash = contentHash;
+            this.secureVaultConfiguration = secureVaultConfiguration;
+        }
+    }
+}
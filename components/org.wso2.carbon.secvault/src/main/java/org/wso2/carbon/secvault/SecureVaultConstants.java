@@ -36,6 +36,21 @@ public class SecureVaultConstants {
     public static final String MASTER_KEYS_YAML_CONFIG_PROPERTY = "masterKeyReaderFile";
     public static final String SECRET_PROPERTIES_CONFIG_PROPERTY = "secretPropertiesFile";
 
+    // Optional secret repository parameters
+    public static final String DECRYPTION_MODE_CONFIG_PROPERTY = "decryptionMode";
+    public static final String DECRYPTION_MODE_EAGER = "eager";
+    public static final String DECRYPTION_MODE_LAZY = "lazy";
+    public static final String DECRYPTION_PARALLELISM_CONFIG_PROPERTY = "decryptionParallelism";
+    public static final String BATCH_PARALLELISM_CONFIG_PROPERTY = "batchParallelism";
+    public static final String WATCH_SECRETS_FILE_CONFIG_PROPERTY = "watchSecretsFile";
+    public static final String WATCH_DEBOUNCE_CONFIG_PROPERTY = "watchDebounceMillis";
+    public static final long DEFAULT_WATCH_DEBOUNCE_MILLIS = 500;
+    public static final String SECRET_CACHE_MAX_ENTRIES_CONFIG_PROPERTY = "secretCacheMaxEntries";
+    public static final String SECRET_CACHE_EXPIRY_CONFIG_PROPERTY = "secretCacheExpiryMillis";
+    public static final String OFF_HEAP_SECRETS_CONFIG_PROPERTY = "offHeapSecrets";
+    public static final String INDEXED_SECRETS_FILE_CONFIG_PROPERTY = "indexedSecretsFile";
+    public static final String INDEXED_SECRETS_FILE_EXTENSION = ".idx";
+
     public static final String DEFAULT_SECRET_REPOSITORY =
                                                     "org.wso2.carbon.secvault.repository.DefaultSecretRepository";
     public static final String DEFAULT_PRIVATE_KEY_ALIAS = "wso2carbon";
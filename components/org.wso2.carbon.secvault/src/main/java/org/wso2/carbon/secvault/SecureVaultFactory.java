@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
 import org.wso2.carbon.secvault.internal.SecureVaultDataHolder;
 import org.wso2.carbon.secvault.internal.SecureVaultImpl;
+import org.wso2.carbon.secvault.internal.StartupTimelineRecorder;
 import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
 
 import java.nio.file.Path;
@@ -39,16 +40,30 @@ public class SecureVaultFactory {
 
     /**
      * Initializes and returns the secure vault by initialising master key reader and secret repository and loading
-     * secrets to secret repository.
+     * secrets to secret repository. The timeline of the initialization is logged, and is available from the
+     * returned secure vault.
      *
      * @throws SecureVaultException error on initializing secure vault
      */
     public static Optional<SecureVault> getSecureVault(Path secureVaultConfigPath) throws SecureVaultException {
+        StartupTimelineRecorder recorder = StartupTimelineRecorder.start();
+        try {
+            return Optional.of(getSecureVault(secureVaultConfigPath, recorder));
+        } finally {
+            recorder.stop();
+        }
+    }
+
+    private static SecureVault getSecureVault(Path secureVaultConfigPath, StartupTimelineRecorder recorder)
+            throws SecureVaultException {
         MasterKeyReader masterKeyReader;
         SecretRepository secretRepository;
-        SecureVaultConfiguration secureVaultConfiguration = SecureVaultUtils.getSecureVaultConfig(secureVaultConfigPath)
-                .orElseThrow(() -> new SecureVaultException("Error occurred when obtaining secure vault " +
-                        "configuration."));
+        SecureVaultConfiguration secureVaultConfiguration;
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("configuration")) {
+            secureVaultConfiguration = SecureVaultUtils.getSecureVaultConfig(secureVaultConfigPath)
+                    .orElseThrow(() -> new SecureVaultException("Error occurred when obtaining secure vault " +
+                            "configuration."));
+        }
 
         if (SecureVaultUtils.isOSGIEnv()) {
             // Get master key reader
@@ -70,14 +85,15 @@ public class SecureVaultFactory {
             secretRepository = createInstance(secretRepositoryType, SecretRepository.class);
             SecureVaultDataHolder.getInstance().setSecretRepository(secretRepository);
         }
-        SecureVault secureVault = getSecureVault(secureVaultConfiguration, masterKeyReader, secretRepository);
-        logger.debug("Secure Vault initialized successfully");
-        return Optional.ofNullable(secureVault);
+        initialize(secureVaultConfiguration, masterKeyReader, secretRepository);
+        StartupTimeline startupTimeline = recorder.finish();
+        logger.info(startupTimeline.getSummary());
+        return new SecureVaultImpl(startupTimeline);
     }
 
 
     /**
-     * Initializes and returns the secure vault by initialising master key reader and secret repository and loading
+     * Initializes the secure vault by initialising master key reader and secret repository and loading
      * secrets to secret repository.
      *
      * @param secureVaultConfiguration secure vault configuration
@@ -85,15 +101,20 @@ public class SecureVaultFactory {
      * @param secretRepository         secret repository instance
      * @throws SecureVaultException on initializing master key reader
      */
-    private static SecureVault getSecureVault(SecureVaultConfiguration secureVaultConfiguration,
-                                                 MasterKeyReader masterKeyReader, SecretRepository secretRepository)
+    private static void initialize(SecureVaultConfiguration secureVaultConfiguration,
+                                   MasterKeyReader masterKeyReader, SecretRepository secretRepository)
             throws SecureVaultException {
         logger.debug("Initializing the secure vault with, SecretRepositoryType={}, MasterKeyReaderType={}",
                 secretRepository.getClass().getName(), masterKeyReader.getClass().getName());
-        masterKeyReader.init(secureVaultConfiguration.getMasterKeyReaderConfig());
-        secretRepository.init(secureVaultConfiguration.getSecretRepositoryConfig(), masterKeyReader);
-        secretRepository.loadSecrets(secureVaultConfiguration.getSecretRepositoryConfig());
-        return new SecureVaultImpl();
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("master key reader init")) {
+            masterKeyReader.init(secureVaultConfiguration.getMasterKeyReaderConfig());
+        }
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("secret repository init")) {
+            secretRepository.init(secureVaultConfiguration.getSecretRepositoryConfig(), masterKeyReader);
+        }
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("secrets load")) {
+            secretRepository.loadSecrets(secureVaultConfiguration.getSecretRepositoryConfig());
+        }
     }
 
     /**
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault;
+
+/**
+ * This interface is used to record the usage of the secure vault. The secure vault records every operation on the
+ * instance in use, hence an implementation must be thread safe and should return quickly, without blocking.
+ * <p>
+ * An implementation is registered as an OSGi service of this interface, or as a {@link java.util.ServiceLoader}
+ * provider when the secure vault is used in a standalone mode. If no implementation is registered, the metrics are
+ * exposed as the JMX MBean {@code org.wso2.carbon.secvault:type=SecureVaultMetrics}.
+ *
+ * @since 5.0.23
+ */
+public interface SecureVaultMetrics {
+
+    /**
+     * Operations which are recorded by the secure vault.
+     */
+    enum Operation {
+        RESOLVE, ENCRYPT, DECRYPT, SECRET_DECRYPTION
+    }
+
+    /**
+     * Record a completed call to resolve one or more aliases.
+     *
+     * @param latencyNanos duration of the call in nanoseconds
+     */
+    void recordResolve(long latencyNanos);
+
+    /**
+     * Record whether a resolved alias exists in the secret repository.
+     *
+     * @param alias alias which is resolved
+     * @param found true if the alias exists, false otherwise
+     */
+    void recordResolveResult(String alias, boolean found);
+
+    /**
+     * Record a completed encryption.
+     *
+     * @param bytes        number of cipher text bytes produced
+     * @param latencyNanos duration of the encryption in nanoseconds
+     */
+    void recordEncrypt(long bytes, long latencyNanos);
+
+    /**
+     * Record a completed decryption.
+     *
+     * @param bytes        number of plain text bytes produced
+     * @param latencyNanos duration of the decryption in nanoseconds
+     */
+    void recordDecrypt(long bytes, long latencyNanos);
+
+    /**
+     * Record the decryption of a secret of the secret repository, when it is loaded or first resolved.
+     *
+     * @param latencyNanos duration of the decryption in nanoseconds
+     */
+    void recordSecretDecryption(long latencyNanos);
+
+    /**
+     * Record a failed operation.
+     *
+     * @param operation operation which failed
+     */
+    void recordError(Operation operation);
+}
@@ -20,16 +20,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
 import org.wso2.carbon.secvault.internal.SecureVaultDataHolder;
-import org.wso2.carbon.secvault.model.MasterKeyReaderConfiguration;
-import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
 import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
 import org.wso2.carbon.utils.StringUtils;
-import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.constructor.CustomClassLoaderConstructor;
-import org.yaml.snakeyaml.introspector.BeanAccess;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -38,7 +35,11 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -51,7 +52,6 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.function.Function;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static org.wso2.carbon.secvault.SecureVaultConstants.DEFAULT_KEYSTORE_LOCATION;
 import static org.wso2.carbon.secvault.SecureVaultConstants.DEFAULT_MASTER_KEY_READER;
@@ -74,8 +74,6 @@ import static org.wso2.carbon.secvault.cipher.JKSBasedCipherProvider.LOCATION;
 public class SecureVaultUtils {
     private static final Logger logger = LoggerFactory.getLogger(SecureVaultUtils.class);
     private static final String DEFAULT_CHARSET = StandardCharsets.UTF_8.name();
-    private static final Pattern VAR_PATTERN_ENV = Pattern.compile("\\$\\{env:([^}]*)}");
-    private static final Pattern VAR_PATTERN_SYS = Pattern.compile("\\$\\{sys:([^}]*)}");
     private static final String YAML_EXTENSION = ".yaml";
 
     /**
@@ -86,7 +84,9 @@ public class SecureVaultUtils {
     }
 
     /**
-     * Initialize secure vault configuration provider.
+     * Initialize secure vault configuration provider. The configuration is obtained from the
+     * {@link SecureVaultConfigurationRegistry}, hence a configuration file is only parsed again once it has changed.
+     * Placeholders are resolved on every call, and each call returns a new configuration which is owned by the caller.
      *
      * @param secureVaultConfigPath Secure vault yaml configuration path
      * @throws SecureVaultException when error occurs in secure vault configuration provider initialisation
@@ -97,35 +97,51 @@ public class SecureVaultUtils {
             throw new SecureVaultException("Error while loading secure vault configuration. secure vault " +
                     "configuration file path is not provided");
         }
+        return SecureVaultConfigurationRegistry.getInstance().getSecureVaultConfig(secureVaultConfigPath);
+    }
+
+    /**
+     * Parse the secure vault configuration from the content of a configuration file, without resolving its
+     * placeholders.
+     *
+     * @param secureVaultConfigPath secure vault configuration file path
+     * @param content               content of the configuration file
+     * @return secure vault configuration of the file
+     * @throws SecureVaultException when the file has no valid secure vault configuration
+     */
+    static Optional<ParsedSecureVaultConfiguration> parseSecureVaultConfig(Path secureVaultConfigPath,
+                                                                           byte[] content)
+            throws SecureVaultException {
         if (logger.isDebugEnabled()) {
             logger.debug("Loading Secure Vault Configurations from the file: " + secureVaultConfigPath
                     .toString());
         }
-        String resolvedFileContent = SecureVaultUtils.resolveFileToString(secureVaultConfigPath);
-        SecureVaultConfiguration secureVaultConfiguration;
-        if (!resolvedFileContent.isEmpty()) {
-            Yaml yaml = new Yaml(new CustomClassLoaderConstructor(SecureVaultConfiguration.class,
-                    SecureVaultConfiguration.class.getClassLoader(), new LoaderOptions()));
-            yaml.setBeanAccess(BeanAccess.FIELD);
-            secureVaultConfiguration = yaml.loadAs(resolvedFileContent, SecureVaultConfiguration.class);
+        ParsedSecureVaultConfiguration secureVaultConfiguration;
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+            secureVaultConfiguration = SecureVaultConfigurationReader.read(reader,
+                    secureVaultConfigPath.toString().endsWith(YAML_EXTENSION)).orElse(null);
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to read filepath : " + secureVaultConfigPath, e);
+        }
+        if (secureVaultConfiguration != null) {
             logger.debug("Secure vault configurations loaded successfully.");
+        } else if (secureVaultConfigPath.toString().endsWith(YAML_EXTENSION) && !SecureVaultUtils.isOSGIEnv()) {
+            throw new SecureVaultException("Error initializing securevault, secure configuration does not exist");
         } else {
+            logger.debug("Secure vault configuration not found, using the default configuration.");
 
-            MasterKeyReaderConfiguration masterKeyReader = new MasterKeyReaderConfiguration();
+            // Placeholders of the default configuration are resolved along with those of a configuration file
+            secureVaultConfiguration = new ParsedSecureVaultConfiguration();
+            ParsedSecureVaultConfiguration.Component masterKeyReader = secureVaultConfiguration.addMasterKeyReader();
             masterKeyReader.setType(DEFAULT_MASTER_KEY_READER);
-            masterKeyReader.setParameter(MASTER_KEYS_YAML_CONFIG_PROPERTY,
-                    SecureVaultUtils.substituteVariables(DEFAULT_MASTER_KEY_READER_FILE));
+            masterKeyReader.setParameter(MASTER_KEYS_YAML_CONFIG_PROPERTY, DEFAULT_MASTER_KEY_READER_FILE);
 
-            SecretRepositoryConfiguration secretRepository = new SecretRepositoryConfiguration();
+            ParsedSecureVaultConfiguration.Component secretRepository =
+                    secureVaultConfiguration.addSecretRepository();
             secretRepository.setType(DEFAULT_SECRET_REPOSITORY);
             secretRepository.setParameter(ALIAS, DEFAULT_PRIVATE_KEY_ALIAS);
-            secretRepository.setParameter(LOCATION, SecureVaultUtils.substituteVariables(DEFAULT_KEYSTORE_LOCATION));
-            secretRepository.setParameter(SECRET_PROPERTIES_CONFIG_PROPERTY,
-                    SecureVaultUtils.substituteVariables(DEFAULT_SECRET_PROPERTIES_FILE));
-
-            secureVaultConfiguration = new SecureVaultConfiguration();
-            secureVaultConfiguration.setMasterKeyReader(masterKeyReader);
-            secureVaultConfiguration.setSecretRepository(secretRepository);
+            secretRepository.setParameter(LOCATION, DEFAULT_KEYSTORE_LOCATION);
+            secretRepository.setParameter(SECRET_PROPERTIES_CONFIG_PROPERTY, DEFAULT_SECRET_PROPERTIES_FILE);
         }
 
         return Optional.ofNullable(secureVaultConfiguration);
@@ -156,6 +172,51 @@ public class SecureVaultUtils {
         return value.getBytes(Charset.forName(DEFAULT_CHARSET));
     }
 
+    /**
+     * Read all the remaining bytes of the given channel.
+     *
+     * @param channel blocking channel to read from, until its end
+     * @return bytes read from the channel
+     * @throws SecureVaultException on an error while reading
+     * @since 5.0.23
+     */
+    public static byte[] readFully(ReadableByteChannel channel) throws SecureVaultException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        // The stream is not closed, since the channel is owned by the caller
+        InputStream inputStream = Channels.newInputStream(channel);
+        try {
+            int length;
+            while ((length = inputStream.read(buffer)) >= 0) {
+                outputStream.write(buffer, 0, length);
+            }
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to read the given stream", e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Write all the given bytes to the given channel.
+     *
+     * @param channel blocking channel to write to
+     * @param bytes   bytes to write
+     * @return number of bytes written
+     * @throws SecureVaultException on an error while writing
+     * @since 5.0.23
+     */
+    public static long writeFully(WritableByteChannel channel, byte[] bytes) throws SecureVaultException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to write the given stream", e);
+        }
+        return bytes.length;
+    }
+
     public static Properties loadSecretFile(Path secretsFilePath) throws SecureVaultException {
         Properties properties = new Properties();
         try (InputStream inputStream = new FileInputStream(secretsFilePath.toFile());
@@ -203,15 +264,10 @@ public class SecureVaultUtils {
      * @param value a string that contains placeholders which is needed to get substitute with proper values
      * @return updated String
      * @throws SecureVaultException in case a valid value for a specified placeholder is not provided.
+     * @see PlaceholderResolver
      */
     public static String substituteVariables(String value) throws SecureVaultException {
-        if (VAR_PATTERN_ENV.matcher(value).find()) {
-            value = substituteVariables(VAR_PATTERN_ENV.matcher(value), System::getenv);
-        }
-        if (VAR_PATTERN_SYS.matcher(value).find()) {
-            value = substituteVariables(VAR_PATTERN_SYS.matcher(value), System::getProperty);
-        }
-        return value;
+        return PlaceholderResolver.getDefault().resolve(value);
     }
 
     /**
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timeline of a secure vault initialization, which consists of the phases of the initialization in the order
+ * they started. A phase may consist of further phases, and may hold counts of the items it processed.
+ *
+ * @since 5.0.23
+ */
+public final class StartupTimeline {
+    private final long durationNanos;
+    private final List<Phase> phases;
+
+    public StartupTimeline(long durationNanos, List<Phase> phases) {
+        this.durationNanos = durationNanos;
+        this.phases = Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Get the total duration of the initialization.
+     *
+     * @return duration in nanoseconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Get the phases of the initialization.
+     *
+     * @return phases in the order they started
+     */
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    /**
+     * Get a single line summary of the timeline, with the duration and counts of every phase.
+     *
+     * @return summary of the timeline
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("Secure vault initialized in ");
+        appendDuration(summary, durationNanos);
+        appendPhases(summary, phases);
+        return summary.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+
+    private static void appendPhases(StringBuilder summary, List<Phase> phases) {
+        if (phases.isEmpty()) {
+            return;
+        }
+        summary.append(" (");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            if (i > 0) {
+                summary.append(", ");
+            }
+            summary.append(phase.getName()).append(' ');
+            appendDuration(summary, phase.getDurationNanos());
+            if (!phase.getCounts().isEmpty()) {
+                summary.append(' ').append(phase.getCounts());
+            }
+            appendPhases(summary, phase.getPhases());
+        }
+        summary.append(')');
+    }
+
+    private static void appendDuration(StringBuilder summary, long durationNanos) {
+        summary.append(String.format(Locale.ENGLISH, "%.1f ms", durationNanos / (double) TimeUnit.MILLISECONDS
+                .toNanos(1)));
+    }
+
+    /**
+     * A phase of a secure vault initialization.
+     *
+     * @since 5.0.23
+     */
+    public static final class Phase {
+        private final String name;
+        private final long durationNanos;
+        private final Map<String, Long> counts;
+        private final List<Phase> phases;
+
+        public Phase(String name, long durationNanos, Map<String, Long> counts, List<Phase> phases) {
+            this.name = name;
+            this.durationNanos = durationNanos;
+            this.counts = Collections.unmodifiableMap(counts);
+            this.phases = Collections.unmodifiableList(phases);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * Get the counts of the items processed in this phase, such as the number of secrets loaded.
+         *
+         * @return counts by name, in the order they were recorded
+         */
+        public Map<String, Long> getCounts() {
+            return counts;
+        }
+
+        /**
+         * Get the phases which this phase consists of.
+         *
+         * @return phases in the order they started
+         */
+        public List<Phase> getPhases() {
+            return phases;
+        }
+    }
+}
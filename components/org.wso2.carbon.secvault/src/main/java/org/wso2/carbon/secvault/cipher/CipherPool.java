@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.cipher;
+
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.Cipher;
+
+/**
+ * A bounded pool of {@link Cipher} instances.
+ * <p>
+ * {@link Cipher} is not thread-safe, hence a cipher is borrowed for the duration of a single operation and released
+ * back to the pool afterwards. A new cipher is created whenever the pool is empty, so callers never block. At most
+ * {@code maxIdle} ciphers are retained once the load goes down.
+ *
+ * @since 5.0.23
+ */
+class CipherPool {
+    private final CipherFactory cipherFactory;
+    private final int maxIdle;
+    private final Queue<Cipher> idleCiphers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    CipherPool(CipherFactory cipherFactory, int maxIdle) {
+        this.cipherFactory = cipherFactory;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Borrow a cipher from the pool, creating a new one if none is idle.
+     *
+     * @return a cipher which is owned by the caller until it is released
+     * @throws SecureVaultException on an error while creating a new cipher
+     */
+    Cipher borrow() throws SecureVaultException {
+        Cipher cipher = idleCiphers.poll();
+        if (cipher != null) {
+            idleCount.decrementAndGet();
+            return cipher;
+        }
+        return cipherFactory.create();
+    }
+
+    /**
+     * Release a borrowed cipher back to the pool. The cipher is discarded if the pool is already full.
+     *
+     * @param cipher a cipher obtained from {@link #borrow()} which is in the state the pool hands out
+     */
+    void release(Cipher cipher) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idleCiphers.offer(cipher);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Creates a new {@link Cipher} for a {@link CipherPool}.
+     */
+    @FunctionalInterface
+    interface CipherFactory {
+        Cipher create() throws SecureVaultException;
+    }
+}
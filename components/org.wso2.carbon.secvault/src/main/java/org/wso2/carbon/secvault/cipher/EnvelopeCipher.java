@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.cipher;
+
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * This class provides envelope encryption on top of the key pair of a {@link JKSBasedCipherProvider}. Every
+ * payload is encrypted with a fresh AES-GCM data key, and only the data key is encrypted with the key pair, so that
+ * payloads of any size can be encrypted at symmetric cipher speed.
+ * <p>
+ * An envelope has the following layout, where the header is authenticated as additional data of the payload.
+ * <pre>
+ * | magic (4) | version (1) | wrapped key length (2) | wrapped key | IV (12) | encrypted payload | GCM tag (16) |
+ * </pre>
+ *
+ * @since 5.0.23
+ */
+class EnvelopeCipher {
+    static final byte VERSION = 1;
+    private static final byte[] MAGIC = {'W', 'S', 'V', 'E'};
+    static final String DATA_KEY_ALGORITHM = "AES";
+    private static final String DATA_CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+    static final int DATA_KEY_LENGTH = 32;
+    private static final int IV_LENGTH = 12;
+    static final int TAG_LENGTH = 16;
+    private static final int FIXED_HEADER_LENGTH = MAGIC.length + 1 + 2;
+
+    private final CipherPool keyEncryptionCiphers;
+    private final CipherPool keyDecryptionCiphers;
+    private final CipherPool dataCiphers;
+    private final int wrappedKeyLength;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Creates an envelope cipher which wraps data keys with the given key pair ciphers.
+     *
+     * @param keyEncryptionCiphers pool of ciphers initialized to encrypt with the public key
+     * @param keyDecryptionCiphers pool of ciphers initialized to decrypt with the private key
+     * @param wrappedKeyLength     length of a data key once encrypted with the public key
+     * @param maxIdleCiphers       maximum number of idle data ciphers to retain
+     */
+    EnvelopeCipher(CipherPool keyEncryptionCiphers, CipherPool keyDecryptionCiphers, int wrappedKeyLength,
+                   int maxIdleCiphers) {
+        this.keyEncryptionCiphers = keyEncryptionCiphers;
+        this.keyDecryptionCiphers = keyDecryptionCiphers;
+        this.wrappedKeyLength = wrappedKeyLength;
+        this.dataCiphers = new CipherPool(EnvelopeCipher::createDataCipher, maxIdleCiphers);
+    }
+
+    /**
+     * Check whether the remaining bytes of the given buffer are an envelope. Cipher texts of the key pair are
+     * exactly as long as the wrapped key, which can never be the case for an envelope.
+     *
+     * @param cipherText cipher text buffer, which is not modified
+     * @return true if the cipher text is an envelope
+     */
+    boolean isEnvelope(ByteBuffer cipherText) {
+        if (cipherText.remaining() < getHeaderLength() + TAG_LENGTH) {
+            return false;
+        }
+        int position = cipherText.position();
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (cipherText.get(position + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getEncryptOutputSize(int plainTextLength) {
+        return getHeaderLength() + plainTextLength + TAG_LENGTH;
+    }
+
+    int getDecryptOutputSize(int cipherTextLength) {
+        return Math.max(cipherTextLength - getHeaderLength() - TAG_LENGTH, 0);
+    }
+
+    int encrypt(ByteBuffer plainText, ByteBuffer cipherText) throws SecureVaultException {
+        int outputSize = getEncryptOutputSize(plainText.remaining());
+        checkOutputSize(cipherText, outputSize);
+
+        byte[] dataKey = new byte[DATA_KEY_LENGTH];
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(dataKey);
+        secureRandom.nextBytes(iv);
+        try {
+            byte[] wrappedKey = doFinal(keyEncryptionCiphers, dataKey);
+            if (wrappedKey.length != wrappedKeyLength) {
+                throw new SecureVaultException("Unexpected wrapped data key length : " + wrappedKey.length);
+            }
+            byte[] header = ByteBuffer.allocate(FIXED_HEADER_LENGTH + wrappedKeyLength)
+                    .put(MAGIC)
+                    .put(VERSION)
+                    .putShort((short) wrappedKeyLength)
+                    .put(wrappedKey)
+                    .array();
+            Cipher cipher = dataCiphers.borrow();
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(dataKey, DATA_KEY_ALGORITHM),
+                    new GCMParameterSpec(TAG_LENGTH * 8, iv));
+            cipher.updateAAD(header);
+            cipherText.put(header).put(iv);
+            cipher.doFinal(plainText, cipherText);
+            dataCiphers.release(cipher);
+        } catch (GeneralSecurityException e) {
+            throw new SecureVaultException("Failed to encrypt the given input", e);
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+        return outputSize;
+    }
+
+    int decrypt(ByteBuffer cipherText, ByteBuffer plainText) throws SecureVaultException {
+        if (!isEnvelope(cipherText)) {
+            throw new SecureVaultException("Given input is not an encrypted envelope");
+        }
+        int outputSize = getDecryptOutputSize(cipherText.remaining());
+        checkOutputSize(plainText, outputSize);
+
+        ByteBuffer input = cipherText.duplicate();
+        input.position(input.position() + MAGIC.length);
+        byte version = input.get();
+        if (version != VERSION) {
+            throw new SecureVaultException("Unsupported envelope version : " + version);
+        }
+        int keyLength = input.getShort() & 0xFFFF;
+        if (keyLength != wrappedKeyLength) {
+            throw new SecureVaultException("Envelope data key was not wrapped with the configured key pair");
+        }
+        byte[] header = new byte[FIXED_HEADER_LENGTH + keyLength];
+        cipherText.duplicate().get(header);
+        byte[] wrappedKey = Arrays.copyOfRange(header, FIXED_HEADER_LENGTH, header.length);
+        byte[] iv = new byte[IV_LENGTH];
+        input.position(input.position() + keyLength);
+        input.get(iv);
+
+        byte[] dataKey = null;
+        try {
+            dataKey = doFinal(keyDecryptionCiphers, wrappedKey);
+            Cipher cipher = dataCiphers.borrow();
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(dataKey, DATA_KEY_ALGORITHM),
+                    new GCMParameterSpec(TAG_LENGTH * 8, iv));
+            cipher.updateAAD(header);
+            int length = cipher.doFinal(input, plainText);
+            dataCiphers.release(cipher);
+            cipherText.position(cipherText.limit());
+            return length;
+        } catch (GeneralSecurityException e) {
+            throw new SecureVaultException("Failed to decrypt the given input", e);
+        } finally {
+            if (dataKey != null) {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+        }
+    }
+
+    private int getHeaderLength() {
+        return FIXED_HEADER_LENGTH + wrappedKeyLength + IV_LENGTH;
+    }
+
+    static byte[] doFinal(CipherPool cipherPool, byte[] input)
+            throws SecureVaultException, GeneralSecurityException {
+        Cipher cipher = cipherPool.borrow();
+        byte[] output = cipher.doFinal(input);
+        cipherPool.release(cipher);
+        return output;
+    }
+
+    private static void checkOutputSize(ByteBuffer output, int outputSize) throws SecureVaultException {
+        if (output.remaining() < outputSize) {
+            throw new SecureVaultException("Output buffer is too small, '" + outputSize + "' bytes are required " +
+                    "but only '" + output.remaining() + "' bytes are remaining");
+        }
+    }
+
+    static Cipher createDataCipher() throws SecureVaultException {
+        try {
+            return Cipher.getInstance(DATA_CIPHER_TRANSFORMATION);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new SecureVaultException("Failed to create Cipher for '" + DATA_CIPHER_TRANSFORMATION + "'", e);
+        }
+    }
+}
@@ -21,14 +21,16 @@ import org.slf4j.LoggerFactory;
 import org.wso2.carbon.secvault.MasterKey;
 import org.wso2.carbon.secvault.SecureVaultUtils;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.internal.FlightRecorderEvents;
+import org.wso2.carbon.secvault.internal.StartupTimelineRecorder;
 import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.InvalidKeyException;
@@ -39,11 +41,15 @@ import java.security.PrivateKey;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
+import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 
 /**
  * This class is responsible for providing encryption and decryption capabilities based on the JKS.
@@ -56,9 +62,18 @@ public class JKSBasedCipherProvider {
     public static final String ALIAS = "privateKeyAlias";
     public static final String KEY_STORE_PASSWORD = "keyStorePassword";
     public static final String PRIVATE_KEY_PASSWORD = "privateKeyPassword";
+    public static final String ENCRYPTION_MODE = "encryptionMode";
+    public static final String ENCRYPTION_MODE_RSA = "rsa";
+    public static final String ENCRYPTION_MODE_ENVELOPE = "envelope";
     private static final String JKS = "JKS";
-    private Cipher encryptionCipher;
-    private Cipher decryptionCipher;
+    private static final String ENCRYPT = "encrypt";
+    private static final String DECRYPT = "decrypt";
+    private static final int MAX_IDLE_CIPHERS = Runtime.getRuntime().availableProcessors();
+    private CipherPool encryptionCiphers;
+    private CipherPool decryptionCiphers;
+    private EnvelopeCipher envelopeCipher;
+    private StreamingCipher streamingCipher;
+    private boolean envelopeEncryption;
 
     public void init(SecretRepositoryConfiguration secretRepositoryConfiguration, List<MasterKey> masterKeys)
             throws SecureVaultException {
@@ -71,31 +86,145 @@ public class JKSBasedCipherProvider {
         MasterKey keyStorePassword = SecureVaultUtils.getSecret(masterKeys, KEY_STORE_PASSWORD);
         MasterKey privateKeyPassword = SecureVaultUtils.getSecret(masterKeys, PRIVATE_KEY_PASSWORD);
 
-        KeyStore keyStore = loadKeyStore(keystoreLocation, keyStorePassword.getMasterKeyValue()
-                .orElseThrow(() -> new SecureVaultException("Key store password is mandatory")));
+        Certificate certificate;
+        PrivateKey privateKey;
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("key store load")) {
+            KeyStore keyStore = loadKeyStore(keystoreLocation, keyStorePassword.getMasterKeyValue()
+                    .orElseThrow(() -> new SecureVaultException("Key store password is mandatory")));
+
+            certificate = getCertificate(keyStore, privateKeyAlias);
+            privateKey = getPrivateKey(keyStore, privateKeyAlias, privateKeyPassword.getMasterKeyValue()
+                    .orElseThrow(() -> new SecureVaultException("Private key password is mandatory")));
+        }
+
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("cipher init")) {
+            encryptionCiphers = new CipherPool(() -> getEncryptionCipher(certificate), MAX_IDLE_CIPHERS);
+            decryptionCiphers = new CipherPool(() -> getDecryptionCipher(privateKey), MAX_IDLE_CIPHERS);
+            // Create the first cipher of each pool eagerly, so that an invalid key is reported at initialization.
+            Cipher encryptionCipher = encryptionCiphers.borrow();
+            int keySize = encryptionCipher.getOutputSize(0);
+            encryptionCiphers.release(encryptionCipher);
+            decryptionCiphers.release(decryptionCiphers.borrow());
+            envelopeCipher = new EnvelopeCipher(encryptionCiphers, decryptionCiphers, keySize, MAX_IDLE_CIPHERS);
+            streamingCipher = new StreamingCipher(encryptionCiphers, decryptionCiphers, keySize,
+                    StreamingCipher.DEFAULT_CHUNK_SIZE, MAX_IDLE_CIPHERS);
+        }
 
-        encryptionCipher = getEncryptionCipher(keyStore, privateKeyAlias);
-        decryptionCipher = getDecryptionCipher(keyStore, privateKeyAlias, privateKeyPassword.getMasterKeyValue()
-                .orElseThrow(() -> new SecureVaultException("Private key password is mandatory")));
-        logger.debug("JKSBasedCipherProvider initialized successfully.");
+        String encryptionMode = secretRepositoryConfiguration.getParameter(ENCRYPTION_MODE)
+                .orElse(ENCRYPTION_MODE_RSA).trim().toLowerCase(Locale.ENGLISH);
+        switch (encryptionMode) {
+            case ENCRYPTION_MODE_RSA:
+                envelopeEncryption = false;
+                break;
+            case ENCRYPTION_MODE_ENVELOPE:
+                envelopeEncryption = true;
+                break;
+            default:
+                throw new SecureVaultException("Unsupported encryption mode : " + encryptionMode);
+        }
+        logger.debug("JKSBasedCipherProvider initialized successfully with alias : '{}' and encryption mode : '{}'",
+                privateKeyAlias, encryptionMode);
     }
 
     public byte[] encrypt(byte[] plainText) throws SecureVaultException {
-        return doCipher(encryptionCipher, plainText);
+        if (envelopeEncryption) {
+            byte[] cipherText = new byte[envelopeCipher.getEncryptOutputSize(plainText.length)];
+            envelopeCipher.encrypt(ByteBuffer.wrap(plainText), ByteBuffer.wrap(cipherText));
+            return cipherText;
+        }
+        return doCipher(encryptionCiphers, ENCRYPT, plainText);
     }
 
+    /**
+     * Decrypt the given cipher text. Both cipher texts of the key pair and envelopes are accepted, regardless of the
+     * configured encryption mode.
+     *
+     * @param cipherText cipher text to decrypt
+     * @return decrypted plain text
+     * @throws SecureVaultException on an error while trying to decrypt
+     */
     public byte[] decrypt(byte[] cipherText) throws SecureVaultException {
-        return doCipher(decryptionCipher, cipherText);
+        ByteBuffer input = ByteBuffer.wrap(cipherText);
+        if (envelopeCipher.isEnvelope(input)) {
+            byte[] plainText = new byte[envelopeCipher.getDecryptOutputSize(cipherText.length)];
+            envelopeCipher.decrypt(input, ByteBuffer.wrap(plainText));
+            return plainText;
+        }
+        return doCipher(decryptionCiphers, DECRYPT, cipherText);
+    }
+
+    /**
+     * Encrypt the remaining bytes of the given plain text buffer into the given cipher text buffer.
+     *
+     * @param plainText  plain text buffer, its position is advanced to its limit
+     * @param cipherText buffer to write the cipher text to, which should have at least as many bytes remaining as
+     *                   the key size in bytes, plus the plain text size in the envelope encryption mode
+     * @return number of bytes written to the cipher text buffer
+     * @throws SecureVaultException on an error while trying to encrypt
+     */
+    public int encrypt(ByteBuffer plainText, ByteBuffer cipherText) throws SecureVaultException {
+        if (envelopeEncryption) {
+            return envelopeCipher.encrypt(plainText, cipherText);
+        }
+        return doCipher(encryptionCiphers, ENCRYPT, plainText, cipherText);
+    }
+
+    /**
+     * Decrypt the remaining bytes of the given cipher text buffer into the given plain text buffer. Both cipher
+     * texts of the key pair and envelopes are accepted, regardless of the configured encryption mode.
+     *
+     * @param cipherText cipher text buffer, its position is advanced to its limit
+     * @param plainText  buffer to write the plain text to, which should have at least as many bytes remaining as
+     *                   the key size in bytes, or as the payload of an envelope
+     * @return number of bytes written to the plain text buffer
+     * @throws SecureVaultException on an error while trying to decrypt
+     */
+    public int decrypt(ByteBuffer cipherText, ByteBuffer plainText) throws SecureVaultException {
+        if (envelopeCipher.isEnvelope(cipherText)) {
+            return envelopeCipher.decrypt(cipherText, plainText);
+        }
+        return doCipher(decryptionCiphers, DECRYPT, cipherText, plainText);
+    }
+
+    /**
+     * Encrypt the given plain text channel into the given cipher text channel, chunk by chunk, so that payloads of
+     * any size are encrypted with constant memory. Streams are always encrypted with an AES-GCM data key which is
+     * wrapped with the key pair, regardless of the configured encryption mode.
+     *
+     * @param plainText  blocking channel to read the plain text from, until its end
+     * @param cipherText blocking channel to write the cipher text to
+     * @return number of bytes written to the cipher text channel
+     * @throws SecureVaultException on an error while trying to encrypt, or on an I/O error
+     */
+    public long encrypt(ReadableByteChannel plainText, WritableByteChannel cipherText) throws SecureVaultException {
+        return streamingCipher.encrypt(plainText, cipherText);
+    }
+
+    /**
+     * Decrypt the given cipher text channel, which holds a stream encrypted by
+     * {@link #encrypt(ReadableByteChannel, WritableByteChannel)}, into the given plain text channel. Each chunk is
+     * authenticated before it is written, but a stream which fails part way through leaves the chunks before the
+     * failure written, and any such output must be discarded.
+     *
+     * @param cipherText blocking channel to read the cipher text from, until its end
+     * @param plainText  blocking channel to write the plain text to
+     * @return number of bytes written to the plain text channel
+     * @throws SecureVaultException on an error while trying to decrypt, or on an I/O error
+     */
+    public long decrypt(ReadableByteChannel cipherText, WritableByteChannel plainText) throws SecureVaultException {
+        return streamingCipher.decrypt(cipherText, plainText);
     }
 
     private KeyStore loadKeyStore(String keyStorePath, char[] keyStorePassword) throws SecureVaultException {
         Path keyStoreFileLocation = Paths.get(keyStorePath).toAbsolutePath();
+        Object event = FlightRecorderEvents.KEY_STORE_LOAD.begin();
         try (BufferedInputStream bufferedInputStream = new BufferedInputStream(
                 new FileInputStream(keyStoreFileLocation.toString()))) {
             KeyStore keyStore;
             try {
                 keyStore = KeyStore.getInstance(JKS);
                 keyStore.load(bufferedInputStream, keyStorePassword);
+                FlightRecorderEvents.commit(event, keyStoreFileLocation.toString(), JKS);
 
                 logger.debug("Keystore at path : '{}', loaded successfully.", keyStorePath);
 
@@ -112,22 +241,32 @@ public class JKSBasedCipherProvider {
         }
     }
 
-    private Cipher getEncryptionCipher(KeyStore keyStore, String alias)
-            throws SecureVaultException {
-        Certificate certificate;
+    private Certificate getCertificate(KeyStore keyStore, String alias) throws SecureVaultException {
         try {
-            certificate = Optional.ofNullable(keyStore.getCertificate(alias))
+            return Optional.ofNullable(keyStore.getCertificate(alias))
                     .orElseThrow(() ->
                             new SecureVaultException("No certificate found with the given alias : " + alias));
         } catch (KeyStoreException e) {
             throw new SecureVaultException("Failed to get certificate for alias '" + alias + "'", e);
         }
+    }
+
+    private PrivateKey getPrivateKey(KeyStore keyStore, String alias, char[] privateKeyPassword)
+            throws SecureVaultException {
+        try {
+            return Optional.ofNullable((PrivateKey) keyStore.getKey(alias, privateKeyPassword))
+                    .orElseThrow(() -> new SecureVaultException("No key found with the given alias : " + alias));
+        } catch (KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException e) {
+            throw new SecureVaultException("Failed to get private key for alias '" + alias + "'", e);
+        }
+    }
 
+    private Cipher getEncryptionCipher(Certificate certificate) throws SecureVaultException {
         try {
             Cipher cipher = Cipher.getInstance(certificate.getPublicKey().getAlgorithm());
             cipher.init(Cipher.ENCRYPT_MODE, certificate);
 
-            logger.debug("Successfully created an encryption cipher with alias : '{}'", alias);
+            logger.debug("Successfully created an encryption cipher");
 
             return cipher;
         } catch (InvalidKeyException | NoSuchAlgorithmException | NoSuchPaddingException e) {
@@ -135,21 +274,12 @@ public class JKSBasedCipherProvider {
         }
     }
 
-    private Cipher getDecryptionCipher(KeyStore keyStore, String alias, char[] privateKeyPassword)
-            throws SecureVaultException {
-        PrivateKey privateKey;
-        try {
-            privateKey = Optional.ofNullable((PrivateKey) keyStore.getKey(alias, privateKeyPassword))
-                    .orElseThrow(() -> new SecureVaultException("No key found with the given alias : " + alias));
-        } catch (KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException e) {
-            throw new SecureVaultException("Failed to get private key for alias '" + alias + "'", e);
-        }
-
+    private Cipher getDecryptionCipher(PrivateKey privateKey) throws SecureVaultException {
         try {
             Cipher cipher = Cipher.getInstance(privateKey.getAlgorithm());
             cipher.init(Cipher.DECRYPT_MODE, privateKey);
 
-            logger.debug("Successfully created a decryption cipher with alias : '{}'", alias);
+            logger.debug("Successfully created a decryption cipher");
 
             return cipher;
         } catch (InvalidKeyException | NoSuchAlgorithmException | NoSuchPaddingException e) {
@@ -157,22 +287,39 @@ public class JKSBasedCipherProvider {
         }
     }
 
-    private byte[] doCipher(Cipher cipher, byte[] original) throws SecureVaultException {
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             CipherOutputStream cipherOutputStream = new CipherOutputStream(byteArrayOutputStream, cipher);
-             InputStream inputStream = new ByteArrayInputStream(original)
-        ) {
-            byte[] buffer = new byte[1024];
-            int length;
+    private byte[] doCipher(CipherPool cipherPool, String operation, byte[] original) throws SecureVaultException {
+        Cipher cipher = cipherPool.borrow();
+        byte[] output = new byte[cipher.getOutputSize(original.length)];
+        int length = doFinal(cipher, operation, ByteBuffer.wrap(original), ByteBuffer.wrap(output));
+        cipherPool.release(cipher);
+        if (length == output.length) {
+            return output;
+        }
+        byte[] result = Arrays.copyOf(output, length);
+        Arrays.fill(output, (byte) 0);
+        return result;
+    }
 
-            while ((length = inputStream.read(buffer)) != -1) {
-                cipherOutputStream.write(buffer, 0, length);
-            }
-            cipherOutputStream.flush();
-            cipherOutputStream.close();
-            return byteArrayOutputStream.toByteArray();
-        } catch (IOException e) {
-            throw new SecureVaultException("Failed to decrypt the password", e);
+    private int doCipher(CipherPool cipherPool, String operation, ByteBuffer input, ByteBuffer output)
+            throws SecureVaultException {
+        Cipher cipher = cipherPool.borrow();
+        int length = doFinal(cipher, operation, input, output);
+        // Only a cipher which completed the operation is back in its initialized state and safe to reuse.
+        cipherPool.release(cipher);
+        return length;
+    }
+
+    private int doFinal(Cipher cipher, String operation, ByteBuffer input, ByteBuffer output)
+            throws SecureVaultException {
+        int outputSize = cipher.getOutputSize(input.remaining());
+        if (output.remaining() < outputSize) {
+            throw new SecureVaultException("Output buffer is too small, '" + outputSize + "' bytes are required " +
+                    "but only '" + output.remaining() + "' bytes are remaining");
+        }
+        try {
+            return cipher.doFinal(input, output);
+        } catch (ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
+            throw new SecureVaultException("Failed to " + operation + " the given input", e);
         }
     }
 }
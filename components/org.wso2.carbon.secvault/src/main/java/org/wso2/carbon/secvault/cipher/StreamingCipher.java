@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.cipher;
+
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * This class provides streaming encryption on top of the key pair of a {@link JKSBasedCipherProvider}, so that
+ * payloads of any size can be encrypted with constant memory. A stream is encrypted with a fresh AES-GCM data key,
+ * which is encrypted with the key pair, and the payload is split into chunks which are encrypted and authenticated
+ * one by one.
+ * <p>
+ * A stream has the following layout, where the header is authenticated as additional data of every chunk.
+ * <pre>
+ * | magic (4) | version (1) | chunk size (4) | wrapped key length (2) | wrapped key | nonce prefix (7) |
+ * | encrypted chunk 0 | GCM tag (16) | ... | encrypted final chunk | GCM tag (16) |
+ * </pre>
+ * Every chunk except the final one holds exactly chunk size bytes of the payload. The IV of a chunk is the nonce
+ * prefix, followed by the index of the chunk (4) and a flag (1) which marks the final chunk, hence chunks cannot be
+ * reordered, and a truncated stream fails to decrypt.
+ *
+ * @since 5.0.23
+ */
+class StreamingCipher {
+    static final byte VERSION = 1;
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    // Bounds the buffers allocated for the chunk size read from a stream, before the stream is authenticated
+    private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final byte[] MAGIC = {'W', 'S', 'V', 'S'};
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int IV_LENGTH = NONCE_PREFIX_LENGTH + 4 + 1;
+    private static final int FIXED_HEADER_LENGTH = MAGIC.length + 1 + 4 + 2;
+
+    private final CipherPool keyEncryptionCiphers;
+    private final CipherPool keyDecryptionCiphers;
+    private final CipherPool dataCiphers;
+    private final int wrappedKeyLength;
+    private final int chunkSize;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Creates a streaming cipher which wraps data keys with the given key pair ciphers.
+     *
+     * @param keyEncryptionCiphers pool of ciphers initialized to encrypt with the public key
+     * @param keyDecryptionCiphers pool of ciphers initialized to decrypt with the private key
+     * @param wrappedKeyLength     length of a data key once encrypted with the public key
+     * @param chunkSize            number of payload bytes in each chunk of an encrypted stream
+     * @param maxIdleCiphers       maximum number of idle data ciphers to retain
+     */
+    StreamingCipher(CipherPool keyEncryptionCiphers, CipherPool keyDecryptionCiphers, int wrappedKeyLength,
+                    int chunkSize, int maxIdleCiphers) {
+        this.keyEncryptionCiphers = keyEncryptionCiphers;
+        this.keyDecryptionCiphers = keyDecryptionCiphers;
+        this.wrappedKeyLength = wrappedKeyLength;
+        this.chunkSize = chunkSize;
+        this.dataCiphers = new CipherPool(EnvelopeCipher::createDataCipher, maxIdleCiphers);
+    }
+
+    long encrypt(ReadableByteChannel plainText, WritableByteChannel cipherText) throws SecureVaultException {
+        byte[] dataKey = new byte[EnvelopeCipher.DATA_KEY_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        secureRandom.nextBytes(dataKey);
+        secureRandom.nextBytes(noncePrefix);
+        // One byte beyond a chunk tells whether the chunk is the final one
+        ByteBuffer input = ByteBuffer.allocate(chunkSize + 1);
+        try {
+            byte[] wrappedKey = EnvelopeCipher.doFinal(keyEncryptionCiphers, dataKey);
+            if (wrappedKey.length != wrappedKeyLength) {
+                throw new SecureVaultException("Unexpected wrapped data key length : " + wrappedKey.length);
+            }
+            byte[] header = ByteBuffer.allocate(FIXED_HEADER_LENGTH + wrappedKeyLength + NONCE_PREFIX_LENGTH)
+                    .put(MAGIC)
+                    .put(VERSION)
+                    .putInt(chunkSize)
+                    .putShort((short) wrappedKeyLength)
+                    .put(wrappedKey)
+                    .put(noncePrefix)
+                    .array();
+            long length = write(cipherText, ByteBuffer.wrap(header));
+
+            ByteBuffer output = ByteBuffer.allocate(chunkSize + EnvelopeCipher.TAG_LENGTH);
+            SecretKeySpec keySpec = new SecretKeySpec(dataKey, EnvelopeCipher.DATA_KEY_ALGORITHM);
+            Cipher cipher = dataCiphers.borrow();
+            boolean finalChunk = false;
+            for (int index = 0; !finalChunk; index++) {
+                finalChunk = !read(plainText, input);
+                input.flip();
+                ByteBuffer chunk = input.duplicate();
+                chunk.limit(Math.min(chunkSize, input.limit()));
+
+                output.clear();
+                cipher.init(Cipher.ENCRYPT_MODE, keySpec, getParameterSpec(noncePrefix, index, finalChunk));
+                cipher.updateAAD(header);
+                cipher.doFinal(chunk, output);
+                output.flip();
+                length += write(cipherText, output);
+
+                input.position(chunk.limit());
+                input.compact();
+            }
+            dataCiphers.release(cipher);
+            return length;
+        } catch (GeneralSecurityException e) {
+            throw new SecureVaultException("Failed to encrypt the given stream", e);
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+            Arrays.fill(input.array(), (byte) 0);
+        }
+    }
+
+    long decrypt(ReadableByteChannel cipherText, WritableByteChannel plainText) throws SecureVaultException {
+        ByteBuffer fixedHeader = ByteBuffer.allocate(FIXED_HEADER_LENGTH);
+        if (!read(cipherText, fixedHeader) || !isStreamHeader(fixedHeader)) {
+            throw new SecureVaultException("Given input is not an encrypted stream");
+        }
+        fixedHeader.position(MAGIC.length);
+        byte version = fixedHeader.get();
+        if (version != VERSION) {
+            throw new SecureVaultException("Unsupported stream version : " + version);
+        }
+        int streamChunkSize = fixedHeader.getInt();
+        if (streamChunkSize <= 0 || streamChunkSize > MAX_CHUNK_SIZE) {
+            throw new SecureVaultException("Invalid stream chunk size : " + streamChunkSize);
+        }
+        int keyLength = fixedHeader.getShort() & 0xFFFF;
+        if (keyLength != wrappedKeyLength) {
+            throw new SecureVaultException("Stream data key was not wrapped with the configured key pair");
+        }
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_LENGTH + keyLength + NONCE_PREFIX_LENGTH);
+        header.put(fixedHeader.array());
+        if (!read(cipherText, header)) {
+            throw new SecureVaultException("Encrypted stream is truncated");
+        }
+        byte[] wrappedKey = Arrays.copyOfRange(header.array(), FIXED_HEADER_LENGTH, FIXED_HEADER_LENGTH + keyLength);
+        byte[] noncePrefix = Arrays.copyOfRange(header.array(), FIXED_HEADER_LENGTH + keyLength,
+                header.capacity());
+
+        byte[] dataKey = null;
+        ByteBuffer output = null;
+        try {
+            dataKey = EnvelopeCipher.doFinal(keyDecryptionCiphers, wrappedKey);
+            int recordSize = streamChunkSize + EnvelopeCipher.TAG_LENGTH;
+            // One byte beyond a chunk tells whether the chunk is the final one
+            ByteBuffer input = ByteBuffer.allocate(recordSize + 1);
+            output = ByteBuffer.allocate(streamChunkSize);
+            SecretKeySpec keySpec = new SecretKeySpec(dataKey, EnvelopeCipher.DATA_KEY_ALGORITHM);
+            Cipher cipher = dataCiphers.borrow();
+            long length = 0;
+            boolean finalChunk = false;
+            for (int index = 0; !finalChunk; index++) {
+                finalChunk = !read(cipherText, input);
+                input.flip();
+                if (input.remaining() < EnvelopeCipher.TAG_LENGTH) {
+                    throw new SecureVaultException("Encrypted stream is truncated");
+                }
+                ByteBuffer chunk = input.duplicate();
+                chunk.limit(Math.min(recordSize, input.limit()));
+
+                output.clear();
+                cipher.init(Cipher.DECRYPT_MODE, keySpec, getParameterSpec(noncePrefix, index, finalChunk));
+                cipher.updateAAD(header.array());
+                cipher.doFinal(chunk, output);
+                output.flip();
+                length += write(plainText, output);
+
+                input.position(chunk.limit());
+                input.compact();
+            }
+            dataCiphers.release(cipher);
+            return length;
+        } catch (GeneralSecurityException e) {
+            throw new SecureVaultException("Failed to decrypt the given stream", e);
+        } finally {
+            if (dataKey != null) {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+            if (output != null) {
+                Arrays.fill(output.array(), (byte) 0);
+            }
+        }
+    }
+
+    private static boolean isStreamHeader(ByteBuffer header) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static GCMParameterSpec getParameterSpec(byte[] noncePrefix, int index, boolean finalChunk)
+            throws SecureVaultException {
+        if (index < 0) {
+            throw new SecureVaultException("Stream exceeds the maximum number of chunks");
+        }
+        byte[] iv = ByteBuffer.allocate(IV_LENGTH)
+                .put(noncePrefix)
+                .putInt(index)
+                .put(finalChunk ? (byte) 1 : (byte) 0)
+                .array();
+        return new GCMParameterSpec(EnvelopeCipher.TAG_LENGTH * 8, iv);
+    }
+
+    /**
+     * Fill the remaining space of the given buffer from the given channel.
+     *
+     * @param channel blocking channel to read from
+     * @param buffer  buffer to fill
+     * @return true if the buffer is full, false if the channel reached its end first
+     * @throws SecureVaultException on an error while reading
+     */
+    private static boolean read(ReadableByteChannel channel, ByteBuffer buffer) throws SecureVaultException {
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to read the given stream", e);
+        }
+    }
+
+    private static int write(WritableByteChannel channel, ByteBuffer buffer) throws SecureVaultException {
+        int length = buffer.remaining();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return length;
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to write the given stream", e);
+        }
+    }
+}
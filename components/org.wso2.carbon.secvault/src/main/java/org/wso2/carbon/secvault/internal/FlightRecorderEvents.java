@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.metrics.AliasMode;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java Flight Recorder events of the secure vault. The events are defined at runtime with {@code jdk.jfr.EventFactory},
+ * since the secure vault is built for Java versions without Flight Recorder, and are not emitted at all when Flight
+ * Recorder is unavailable. An event is only created while a recording which enables it is running, hence the events
+ * cost a single check otherwise.
+ * <p>
+ * Resolve events hold the resolved alias as configured by the {@value #ALIAS_MODE_PROPERTY} system property:
+ * {@code plain} (default) records the alias, {@code redacted} records a hash of the alias, which still correlates
+ * events of the same alias, and {@code none} records no alias.
+ *
+ * @since 5.0.23
+ */
+public final class FlightRecorderEvents {
+    public static final String ALIAS_MODE_PROPERTY = "org.wso2.carbon.secvault.jfr.alias";
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEvents.class);
+    private static final String EVENT_NAME_PREFIX = "org.wso2.carbon.secvault.";
+    private static final String[] CATEGORY = {"WSO2", "Secure Vault"};
+    // Value of jdk.jfr.DataAmount.BYTES
+    private static final String BYTES = "BYTES";
+    private static final FlightRecorder FLIGHT_RECORDER = FlightRecorder.load();
+    private static final AliasMode ALIAS_MODE = AliasMode.fromSystemProperty(ALIAS_MODE_PROPERTY, AliasMode.PLAIN);
+
+    public static final EventType SECRET_LOAD = new EventType("SecretLoad", "Secret Load",
+            "Loading of the secrets file of a secret repository",
+            new Field(String.class, "path", "Path", false),
+            new Field(int.class, "secrets", "Secrets", false),
+            new Field(int.class, "cipherTexts", "New or Changed Cipher Texts", false),
+            new Field(boolean.class, "decrypted", "Decrypted", false));
+    public static final EventType RESOLVE = new EventType("Resolve", "Resolve",
+            "Resolution of one or more secret aliases",
+            new Field(String.class, "alias", "Alias", false),
+            new Field(int.class, "aliasCount", "Alias Count", false),
+            new Field(boolean.class, "succeeded", "Succeeded", false));
+    public static final EventType ENCRYPT = new EventType("Encrypt", "Encrypt", "Encryption of a payload",
+            new Field(long.class, "size", "Cipher Text Size", true),
+            new Field(boolean.class, "succeeded", "Succeeded", false));
+    public static final EventType DECRYPT = new EventType("Decrypt", "Decrypt", "Decryption of a payload",
+            new Field(long.class, "size", "Plain Text Size", true),
+            new Field(boolean.class, "succeeded", "Succeeded", false));
+    public static final EventType KEY_STORE_LOAD = new EventType("KeyStoreLoad", "Key Store Load",
+            "Loading of the key store of a cipher provider",
+            new Field(String.class, "path", "Path", false),
+            new Field(String.class, "type", "Type", false));
+    public static final EventType MASTER_KEY_READ = new EventType("MasterKeyRead", "Master Key Read",
+            "Reading of the master keys of a secret repository",
+            new Field(int.class, "masterKeys", "Master Keys", false),
+            new Field(String.class, "file", "Master Keys File", false));
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * End the given event and commit it with the given values, if its recording accepts it.
+     *
+     * @param event  event returned by {@link EventType#begin()}, or null
+     * @param values values of the fields of the event type, in the order the fields are defined
+     */
+    public static void commit(Object event, Object... values) {
+        if (event == null) {
+            return;
+        }
+        try {
+            FLIGHT_RECORDER.end.invokeExact(event);
+            if ((boolean) FLIGHT_RECORDER.shouldCommit.invokeExact(event)) {
+                for (int i = 0; i < values.length; i++) {
+                    FLIGHT_RECORDER.set.invokeExact(event, i, values[i]);
+                }
+                FLIGHT_RECORDER.commit.invokeExact(event);
+            }
+        } catch (Throwable throwable) {
+            logger.debug("Failed to commit a flight recorder event", throwable);
+        }
+    }
+
+    /**
+     * Get the value to record for the given alias, as configured by {@value #ALIAS_MODE_PROPERTY}.
+     *
+     * @param alias resolved alias, or null if there is no single alias
+     * @return alias, hash of the alias or null
+     */
+    public static String getAliasValue(String alias) {
+        return ALIAS_MODE.getAliasValue(alias);
+    }
+
+    /**
+     * A field of an event type.
+     */
+    private static final class Field {
+        private final Class<?> type;
+        private final String name;
+        private final String label;
+        private final boolean dataAmount;
+
+        private Field(Class<?> type, String name, String label, boolean dataAmount) {
+            this.type = type;
+            this.name = name;
+            this.label = label;
+            this.dataAmount = dataAmount;
+        }
+    }
+
+    /**
+     * A type of event of the secure vault.
+     */
+    public static final class EventType {
+        private final MethodHandle newEvent;
+        private final MethodHandle isEnabled;
+
+        private EventType(String name, String label, String description, Field... fields) {
+            MethodHandle[] handles = FLIGHT_RECORDER == null ? null :
+                    FLIGHT_RECORDER.createEventType(EVENT_NAME_PREFIX + name, label, description, fields);
+            newEvent = handles == null ? null : handles[0];
+            isEnabled = handles == null ? null : handles[1];
+        }
+
+        /**
+         * Begin an event of this type, if a running recording enables it.
+         *
+         * @return the event, to be committed with {@link FlightRecorderEvents#commit(Object, Object...)}, or null
+         */
+        public Object begin() {
+            if (newEvent == null) {
+                return null;
+            }
+            try {
+                if (!(boolean) isEnabled.invokeExact()) {
+                    return null;
+                }
+                Object event = (Object) newEvent.invokeExact();
+                FLIGHT_RECORDER.begin.invokeExact(event);
+                return event;
+            } catch (Throwable throwable) {
+                logger.debug("Failed to begin a flight recorder event", throwable);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Method handles of the Flight Recorder API of the running JVM.
+     */
+    private static final class FlightRecorder {
+        private final Class<?> eventFactoryClass;
+        private final Constructor<?> annotationElement;
+        private final Constructor<?> valueDescriptor;
+        private final ClassLoader classLoader;
+        private final MethodHandle begin;
+        private final MethodHandle end;
+        private final MethodHandle shouldCommit;
+        private final MethodHandle set;
+        private final MethodHandle commit;
+
+        private FlightRecorder(ClassLoader classLoader) throws ReflectiveOperationException {
+            this.classLoader = classLoader;
+            eventFactoryClass = Class.forName("jdk.jfr.EventFactory", false, classLoader);
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement", false, classLoader);
+            annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+            valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor", false, classLoader)
+                    .getConstructor(Class.class, String.class, List.class);
+
+            Class<?> eventClass = Class.forName("jdk.jfr.Event", false, classLoader);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodType eventAction = MethodType.methodType(void.class, Object.class);
+            begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class)).asType(eventAction);
+            end = lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class)).asType(eventAction);
+            commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class))
+                    .asType(eventAction);
+            shouldCommit = lookup.findVirtual(eventClass, "shouldCommit", MethodType.methodType(boolean.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class));
+            set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+        }
+
+        private static FlightRecorder load() {
+            try {
+                // The system class loader sees the JDK modules, which an OSGi bundle class loader may not
+                return new FlightRecorder(ClassLoader.getSystemClassLoader());
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.debug("Java Flight Recorder is not available, secure vault events are disabled");
+                return null;
+            }
+        }
+
+        /**
+         * Define an event type.
+         *
+         * @return handles which create a new event of the type and check whether the type is enabled, or null if
+         * the type cannot be defined
+         */
+        private MethodHandle[] createEventType(String name, String label, String description, Field... fields) {
+            try {
+                List<Object> annotations = new ArrayList<>(Arrays.asList(
+                        annotation("jdk.jfr.Name", name),
+                        annotation("jdk.jfr.Label", label),
+                        annotation("jdk.jfr.Description", description),
+                        annotation("jdk.jfr.Category", CATEGORY)));
+                List<Object> valueDescriptors = new ArrayList<>();
+                for (Field field : fields) {
+                    List<Object> fieldAnnotations = new ArrayList<>();
+                    fieldAnnotations.add(annotation("jdk.jfr.Label", field.label));
+                    if (field.dataAmount) {
+                        fieldAnnotations.add(annotation("jdk.jfr.DataAmount", BYTES));
+                    }
+                    valueDescriptors.add(valueDescriptor.newInstance(field.type, field.name, fieldAnnotations));
+                }
+                Method create = eventFactoryClass.getMethod("create", List.class, List.class);
+                Object eventFactory = create.invoke(null, annotations, valueDescriptors);
+                Object eventType = eventFactoryClass.getMethod("getEventType").invoke(eventFactory);
+
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                MethodHandle newEvent = lookup.findVirtual(eventFactoryClass, "newEvent",
+                        MethodType.methodType(Class.forName("jdk.jfr.Event", false, classLoader)))
+                        .bindTo(eventFactory)
+                        .asType(MethodType.methodType(Object.class));
+                MethodHandle isEnabled = lookup.findVirtual(Class.forName("jdk.jfr.EventType", false, classLoader),
+                        "isEnabled",
+                        MethodType.methodType(boolean.class))
+                        .bindTo(eventType);
+                return new MethodHandle[]{newEvent, isEnabled};
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.debug("Failed to define flight recorder event : " + name, e);
+                return null;
+            }
+        }
+
+        private Object annotation(String annotationClassName, Object value) throws ReflectiveOperationException {
+            return annotationElement.newInstance(getAnnotationClass(annotationClassName), value);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Class<? extends Annotation> getAnnotationClass(String className) throws ClassNotFoundException {
+            return (Class<? extends Annotation>) Class.forName(className, false, classLoader);
+        }
+    }
+}
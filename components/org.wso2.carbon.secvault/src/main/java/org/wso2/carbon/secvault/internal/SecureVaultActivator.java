@@ -21,6 +21,7 @@ import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.SecureVaultConfigurationRegistry;
 import org.wso2.carbon.secvault.SecureVaultUtils;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
 import org.wso2.carbon.utils.Constants;
@@ -57,6 +58,8 @@ public class SecureVaultActivator implements BundleActivator {
     @Override
     public void stop(BundleContext bundleContext) throws Exception {
         SecureVaultDataHolder.getInstance().setBundleContext(null);
+        SecureVaultDataHolder.getInstance().setSecureVaultMetrics(null);
+        SecureVaultConfigurationRegistry.getInstance().clear();
         logger.debug("Secure Vault Activator successfully stopped");
     }
 }
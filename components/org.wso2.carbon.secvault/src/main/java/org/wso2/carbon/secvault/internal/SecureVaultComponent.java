@@ -28,8 +28,10 @@ import org.wso2.carbon.secvault.MasterKeyReader;
 import org.wso2.carbon.secvault.SecretRepository;
 import org.wso2.carbon.secvault.SecureVault;
 import org.wso2.carbon.secvault.SecureVaultFactory;
+import org.wso2.carbon.secvault.SecureVaultMetrics;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
 import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
+import org.wso2.carbon.secvault.repository.AbstractSecretRepository;
 import org.wso2.carbon.utils.Constants;
 import org.wso2.carbon.utils.Utils;
 
@@ -98,6 +100,9 @@ public class SecureVaultComponent {
                     .orElseThrow(() -> new SecureVaultException("Secret repository type is not set"));
             if (secretRepository.getClass().getName().equals(secretRepositoryType)) {
                 logger.debug("Un-registering secret repository : {}", secretRepositoryType);
+                if (secretRepository instanceof AbstractSecretRepository) {
+                    ((AbstractSecretRepository) secretRepository).close();
+                }
                 SecureVaultDataHolder.getInstance().setSecretRepository(null);
             }
         } catch (SecureVaultException e) {
@@ -145,6 +150,25 @@ public class SecureVaultComponent {
         }
     }
 
+    @Reference(
+            name = "secure.vault.metrics",
+            service = SecureVaultMetrics.class,
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC,
+            unbind = "unregisterSecureVaultMetrics"
+    )
+    protected void registerSecureVaultMetrics(SecureVaultMetrics secureVaultMetrics) {
+        logger.debug("Registering secure vault metrics : {}", secureVaultMetrics.getClass().getName());
+        SecureVaultDataHolder.getInstance().setSecureVaultMetrics(secureVaultMetrics);
+    }
+
+    protected void unregisterSecureVaultMetrics(SecureVaultMetrics secureVaultMetrics) {
+        if (SecureVaultDataHolder.getInstance().getSecureVaultMetrics() == secureVaultMetrics) {
+            logger.debug("Un-registering secure vault metrics : {}", secureVaultMetrics.getClass().getName());
+            SecureVaultDataHolder.getInstance().setSecureVaultMetrics(null);
+        }
+    }
+
     /**
      * Initialise the Secure Vault. This method wait until master key reader service and secret repository service are
      * resolved and call SecureVaultInitializer.initializeSecureVault to initialise master key reader and secret
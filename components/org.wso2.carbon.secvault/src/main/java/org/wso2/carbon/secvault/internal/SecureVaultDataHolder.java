@@ -19,9 +19,13 @@ package org.wso2.carbon.secvault.internal;
 import org.osgi.framework.BundleContext;
 import org.wso2.carbon.secvault.MasterKeyReader;
 import org.wso2.carbon.secvault.SecretRepository;
+import org.wso2.carbon.secvault.SecureVaultMetrics;
+import org.wso2.carbon.secvault.metrics.JmxSecureVaultMetrics;
 import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
 
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.ServiceLoader;
 
 /**
  * Secure Vault DataHolder.
@@ -34,6 +38,7 @@ public class SecureVaultDataHolder {
     private SecretRepository secretRepository;
     private MasterKeyReader masterKeyReader;
     private SecureVaultConfiguration secureVaultConfiguration;
+    private volatile SecureVaultMetrics secureVaultMetrics;
 
     private SecureVaultDataHolder() {
     }
@@ -118,4 +123,50 @@ public class SecureVaultDataHolder {
     public void setSecureVaultConfiguration(SecureVaultConfiguration secureVaultConfiguration) {
         this.secureVaultConfiguration = secureVaultConfiguration;
     }
+
+    /**
+     * Get the metrics which the secure vault records its operations to. Unless metrics are set, the first
+     * {@link ServiceLoader} provider of {@link SecureVaultMetrics} is used, or else metrics which are registered as a
+     * JMX MBean.
+     *
+     * @return SecureVaultMetrics instance in use
+     * @since 5.0.23
+     */
+    public SecureVaultMetrics getSecureVaultMetrics() {
+        SecureVaultMetrics metrics = secureVaultMetrics;
+        if (metrics != null) {
+            return metrics;
+        }
+        synchronized (this) {
+            if (secureVaultMetrics == null) {
+                secureVaultMetrics = createDefaultMetrics();
+            }
+            return secureVaultMetrics;
+        }
+    }
+
+    /**
+     * Setter method of {@link SecureVaultMetrics}. The default JMX metrics are unregistered once they are replaced.
+     *
+     * @param secureVaultMetrics SecureVaultMetrics instance to be set, or null to use the default metrics
+     * @since 5.0.23
+     */
+    public synchronized void setSecureVaultMetrics(SecureVaultMetrics secureVaultMetrics) {
+        SecureVaultMetrics currentMetrics = this.secureVaultMetrics;
+        if (currentMetrics instanceof JmxSecureVaultMetrics && currentMetrics != secureVaultMetrics) {
+            ((JmxSecureVaultMetrics) currentMetrics).unregister();
+        }
+        this.secureVaultMetrics = secureVaultMetrics;
+    }
+
+    private static SecureVaultMetrics createDefaultMetrics() {
+        Iterator<SecureVaultMetrics> providers = ServiceLoader.load(SecureVaultMetrics.class,
+                SecureVaultMetrics.class.getClassLoader()).iterator();
+        if (providers.hasNext()) {
+            return providers.next();
+        }
+        JmxSecureVaultMetrics jmxSecureVaultMetrics = new JmxSecureVaultMetrics();
+        jmxSecureVaultMetrics.register();
+        return jmxSecureVaultMetrics;
+    }
 }
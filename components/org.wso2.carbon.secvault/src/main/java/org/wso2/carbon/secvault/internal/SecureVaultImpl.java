@@ -16,34 +16,219 @@
 
 package org.wso2.carbon.secvault.internal;
 
+import org.wso2.carbon.secvault.CipherResult;
+import org.wso2.carbon.secvault.SecretRepository;
 import org.wso2.carbon.secvault.SecureVault;
+import org.wso2.carbon.secvault.SecureVaultMetrics;
+import org.wso2.carbon.secvault.SecureVaultMetrics.Operation;
+import org.wso2.carbon.secvault.StartupTimeline;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
 /**
- * The default implementation of the SecureVault.
+ * The default implementation of the SecureVault. Every operation is recorded to the {@link SecureVaultMetrics} of
+ * the {@link SecureVaultDataHolder}.
  *
  * @since 5.0.0
  */
 public class SecureVaultImpl implements SecureVault {
+    private final StartupTimeline startupTimeline;
+
+    public SecureVaultImpl() {
+        this(null);
+    }
+
+    /**
+     * Create a secure vault with the timeline of its initialization.
+     *
+     * @param startupTimeline timeline of the initialization, or null if it was not recorded
+     * @since 5.0.23
+     */
+    public SecureVaultImpl(StartupTimeline startupTimeline) {
+        this.startupTimeline = startupTimeline;
+    }
 
     @Override
     public char[] resolve(String alias) throws SecureVaultException {
-        return SecureVaultDataHolder.getInstance().getSecretRepository()
-                .orElseThrow(() -> new SecureVaultException("No secret repository found."))
-                .resolve(alias);
+        return resolveWith(alias, 1, secretRepository -> secretRepository.resolve(alias));
+    }
+
+    @Override
+    public int resolveInto(String alias, char[] destination) throws SecureVaultException {
+        return resolveWith(alias, 1, secretRepository -> secretRepository.resolveInto(alias, destination));
+    }
+
+    @Override
+    public <T> T withSecret(String alias, Function<CharBuffer, T> function) throws SecureVaultException {
+        return resolveWith(alias, 1, secretRepository -> secretRepository.withSecret(alias, function));
+    }
+
+    @Override
+    public Map<String, char[]> resolveAll(Collection<String> aliases) throws SecureVaultException {
+        return resolveWith(null, aliases.size(), secretRepository -> secretRepository.resolveAll(aliases));
     }
 
     @Override
     public byte[] encrypt(byte[] plainText) throws SecureVaultException {
-        return SecureVaultDataHolder.getInstance().getSecretRepository()
-                .orElseThrow(() -> new SecureVaultException("No secret repository found."))
-                .encrypt(plainText);
+        return process(Operation.ENCRYPT, secretRepository -> secretRepository.encrypt(plainText),
+                output -> output.length);
     }
 
     @Override
     public byte[] decrypt(byte[] cipherText) throws SecureVaultException {
-        return SecureVaultDataHolder.getInstance().getSecretRepository()
-                .orElseThrow(() -> new SecureVaultException("No secret repository found."))
-                .decrypt(cipherText);
+        return process(Operation.DECRYPT, secretRepository -> secretRepository.decrypt(cipherText),
+                output -> output.length);
+    }
+
+    @Override
+    public List<CipherResult> encryptBatch(List<byte[]> plainTexts) throws SecureVaultException {
+        return process(Operation.ENCRYPT, secretRepository -> secretRepository.encryptBatch(plainTexts),
+                results -> getOutputLength(results, Operation.ENCRYPT));
+    }
+
+    @Override
+    public List<CipherResult> decryptBatch(List<byte[]> cipherTexts) throws SecureVaultException {
+        return process(Operation.DECRYPT, secretRepository -> secretRepository.decryptBatch(cipherTexts),
+                results -> getOutputLength(results, Operation.DECRYPT));
+    }
+
+    @Override
+    public int encrypt(ByteBuffer plainText, ByteBuffer cipherText) throws SecureVaultException {
+        return process(Operation.ENCRYPT, secretRepository -> secretRepository.encrypt(plainText, cipherText),
+                length -> length);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer cipherText, ByteBuffer plainText) throws SecureVaultException {
+        return process(Operation.DECRYPT, secretRepository -> secretRepository.decrypt(cipherText, plainText),
+                length -> length);
+    }
+
+    @Override
+    public long encrypt(InputStream plainText, OutputStream cipherText) throws SecureVaultException {
+        return process(Operation.ENCRYPT, secretRepository -> secretRepository.encrypt(plainText, cipherText),
+                length -> length);
+    }
+
+    @Override
+    public long decrypt(InputStream cipherText, OutputStream plainText) throws SecureVaultException {
+        return process(Operation.DECRYPT, secretRepository -> secretRepository.decrypt(cipherText, plainText),
+                length -> length);
+    }
+
+    @Override
+    public long encrypt(ReadableByteChannel plainText, WritableByteChannel cipherText) throws SecureVaultException {
+        return process(Operation.ENCRYPT, secretRepository -> secretRepository.encrypt(plainText, cipherText),
+                length -> length);
+    }
+
+    @Override
+    public long decrypt(ReadableByteChannel cipherText, WritableByteChannel plainText) throws SecureVaultException {
+        return process(Operation.DECRYPT, secretRepository -> secretRepository.decrypt(cipherText, plainText),
+                length -> length);
+    }
+
+    @Override
+    public Optional<StartupTimeline> getStartupTimeline() {
+        return Optional.ofNullable(startupTimeline);
+    }
+
+    private static <T> T resolveWith(String alias, int aliasCount, RepositoryCall<T> call)
+            throws SecureVaultException {
+        SecureVaultMetrics metrics = SecureVaultDataHolder.getInstance().getSecureVaultMetrics();
+        Object event = FlightRecorderEvents.RESOLVE.begin();
+        long startTime = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T result = invoke(call, metrics, Operation.RESOLVE);
+            metrics.recordResolve(System.nanoTime() - startTime);
+            succeeded = true;
+            return result;
+        } finally {
+            if (event != null) {
+                FlightRecorderEvents.commit(event, FlightRecorderEvents.getAliasValue(alias), aliasCount,
+                        succeeded);
+            }
+        }
+    }
+
+    private static <T> T process(Operation operation, RepositoryCall<T> call, OutputLength<T> outputLength)
+            throws SecureVaultException {
+        SecureVaultMetrics metrics = SecureVaultDataHolder.getInstance().getSecureVaultMetrics();
+        Object event = (operation == Operation.ENCRYPT ? FlightRecorderEvents.ENCRYPT : FlightRecorderEvents.DECRYPT)
+                .begin();
+        long startTime = System.nanoTime();
+        long length = 0;
+        boolean succeeded = false;
+        try {
+            T result = invoke(call, metrics, operation);
+            long latency = System.nanoTime() - startTime;
+            length = outputLength.of(result);
+            if (operation == Operation.ENCRYPT) {
+                metrics.recordEncrypt(length, latency);
+            } else {
+                metrics.recordDecrypt(length, latency);
+            }
+            succeeded = true;
+            return result;
+        } finally {
+            if (event != null) {
+                FlightRecorderEvents.commit(event, length, succeeded);
+            }
+        }
+    }
+
+    private static <T> T invoke(RepositoryCall<T> call, SecureVaultMetrics metrics, Operation operation)
+            throws SecureVaultException {
+        try {
+            return call.apply(SecureVaultDataHolder.getInstance().getSecretRepository()
+                    .orElseThrow(() -> new SecureVaultException("No secret repository found.")));
+        } catch (SecureVaultException | RuntimeException e) {
+            metrics.recordError(operation);
+            throw e;
+        }
+    }
+
+    /**
+     * Get the total output length of the successful results of a batch, and record an error for each failed result.
+     */
+    private static long getOutputLength(List<CipherResult> results, Operation operation)
+            throws SecureVaultException {
+        long length = 0;
+        for (CipherResult result : results) {
+            if (result.isSuccess()) {
+                length += result.getOutput().length;
+            } else {
+                SecureVaultDataHolder.getInstance().getSecureVaultMetrics().recordError(operation);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A call to the secret repository in use.
+     */
+    @FunctionalInterface
+    private interface RepositoryCall<T> {
+        T apply(SecretRepository secretRepository) throws SecureVaultException;
+    }
+
+    /**
+     * Number of bytes produced by an encryption or decryption, given its result.
+     */
+    @FunctionalInterface
+    private interface OutputLength<T> {
+        long of(T result) throws SecureVaultException;
     }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.internal;
+
+import org.wso2.carbon.secvault.StartupTimeline;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the {@link StartupTimeline} of a secure vault initialization on the thread which initializes it. Phases
+ * are recorded by the components of the secure vault with {@link #phase(String)}, which records nothing unless a
+ * recorder is started on the current thread, hence the same components can be used outside of an initialization.
+ *
+ * @since 5.0.23
+ */
+public final class StartupTimelineRecorder {
+    private static final ThreadLocal<StartupTimelineRecorder> CURRENT = new ThreadLocal<>();
+    private static final Phase NO_OP_PHASE = new Phase(null, null);
+
+    private final long startTime = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private final Deque<Phase> openPhases = new ArrayDeque<>();
+
+    private StartupTimelineRecorder() {
+    }
+
+    /**
+     * Start recording a timeline on the current thread, in place of any timeline which is being recorded.
+     *
+     * @return recorder of the timeline, which must be finished on the same thread
+     */
+    public static StartupTimelineRecorder start() {
+        StartupTimelineRecorder recorder = new StartupTimelineRecorder();
+        CURRENT.set(recorder);
+        return recorder;
+    }
+
+    /**
+     * Start a phase, which ends when it is closed. A phase which is started before the current phase is closed is
+     * recorded as a part of it.
+     *
+     * @param name name of the phase
+     * @return the phase, which must be closed on the same thread
+     */
+    public static Phase phase(String name) {
+        StartupTimelineRecorder recorder = CURRENT.get();
+        if (recorder == null) {
+            return NO_OP_PHASE;
+        }
+        Phase phase = new Phase(recorder, name);
+        Phase parent = recorder.openPhases.peek();
+        (parent == null ? recorder.phases : parent.phases).add(phase);
+        recorder.openPhases.push(phase);
+        return phase;
+    }
+
+    /**
+     * Stop recording on the current thread.
+     *
+     * @return the recorded timeline, where phases which are not closed yet end now
+     */
+    public StartupTimeline finish() {
+        stop();
+        long endTime = System.nanoTime();
+        return new StartupTimeline(endTime - startTime, toTimelinePhases(phases, endTime));
+    }
+
+    /**
+     * Stop recording on the current thread without a timeline, such as when the initialization fails.
+     */
+    public void stop() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    private static List<StartupTimeline.Phase> toTimelinePhases(List<Phase> phases, long endTime) {
+        List<StartupTimeline.Phase> timelinePhases = new ArrayList<>(phases.size());
+        for (Phase phase : phases) {
+            long phaseEndTime = phase.endTime == 0 ? endTime : phase.endTime;
+            timelinePhases.add(new StartupTimeline.Phase(phase.name, phaseEndTime - phase.startTime, phase.counts,
+                    toTimelinePhases(phase.phases, endTime)));
+        }
+        return timelinePhases;
+    }
+
+    /**
+     * A phase which is being recorded.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final StartupTimelineRecorder recorder;
+        private final String name;
+        private final long startTime = System.nanoTime();
+        private long endTime;
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+        private final List<Phase> phases = new ArrayList<>();
+
+        private Phase(StartupTimelineRecorder recorder, String name) {
+            this.recorder = recorder;
+            this.name = name;
+        }
+
+        /**
+         * Set the count of an item processed in this phase.
+         *
+         * @param item  name of the item
+         * @param count number of items processed
+         */
+        public void count(String item, long count) {
+            if (recorder != null) {
+                counts.put(item, count);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (recorder == null || endTime != 0) {
+                return;
+            }
+            endTime = System.nanoTime();
+            // Any phase started within this one which is still open ends with it
+            Phase openPhase;
+            do {
+                openPhase = recorder.openPhases.poll();
+                if (openPhase != null && openPhase.endTime == 0) {
+                    openPhase.endTime = endTime;
+                }
+            } while (openPhase != null && openPhase != this);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * How an alias is recorded in metrics and events, given that aliases reveal which secrets are configured.
+ *
+ * @since 5.0.23
+ */
+public enum AliasMode {
+    /**
+     * Record the alias.
+     */
+    PLAIN,
+    /**
+     * Record a hash of the alias, which still correlates the records of the same alias.
+     */
+    REDACTED,
+    /**
+     * Record no alias.
+     */
+    NONE;
+
+    private static final Logger logger = LoggerFactory.getLogger(AliasMode.class);
+
+    /**
+     * Get the alias mode given by the given system property, as {@code plain}, {@code redacted} or {@code none}.
+     *
+     * @param property    system property of the alias mode
+     * @param defaultMode alias mode to use if the system property is not set or invalid
+     * @return alias mode
+     */
+    public static AliasMode fromSystemProperty(String property, AliasMode defaultMode) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultMode;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid alias mode '{}' of system property '{}', using '{}'", value, property,
+                    defaultMode.name().toLowerCase(Locale.ENGLISH));
+            return defaultMode;
+        }
+    }
+
+    /**
+     * Get the value to record for the given alias.
+     *
+     * @param alias alias, or null if there is no single alias
+     * @return alias, hash of the alias or null
+     */
+    public String getAliasValue(String alias) {
+        if (alias == null || this == NONE) {
+            return null;
+        }
+        if (this == PLAIN) {
+            return alias;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(alias.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder();
+            // A prefix of the hash is sufficient to correlate the records of an alias
+            for (int i = 0; i < 8; i++) {
+                hash.append(String.format("%02x", digest[i]));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.SecureVaultMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The default implementation of {@link SecureVaultMetrics}, which keeps the metrics in memory and exposes them as a
+ * JMX MBean once it is registered.
+ * <p>
+ * Resolve counts are kept per alias only if the {@value #ALIAS_MODE_PROPERTY} system property opts in to it:
+ * {@code plain} keeps the count of each alias, {@code redacted} keeps the count of each alias under a hash of the
+ * alias, and {@code none} (default) keeps no count per alias, since aliases reveal which secrets are configured.
+ *
+ * @since 5.0.23
+ */
+public class JmxSecureVaultMetrics implements SecureVaultMetrics, SecureVaultMetricsMXBean {
+    public static final String OBJECT_NAME = "org.wso2.carbon.secvault:type=SecureVaultMetrics";
+    public static final int MAX_TRACKED_ALIASES = 1000;
+    public static final String ALIAS_MODE_PROPERTY = "org.wso2.carbon.secvault.metrics.alias";
+    private static final Logger logger = LoggerFactory.getLogger(JmxSecureVaultMetrics.class);
+
+    private final LongAdder resolveHitCount = new LongAdder();
+    private final LongAdder resolveMissCount = new LongAdder();
+    private final Map<String, LongAdder> resolveCountByAlias = new ConcurrentHashMap<>();
+    private final LongAdder encryptedBytes = new LongAdder();
+    private final LongAdder decryptedBytes = new LongAdder();
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errorCounts = new EnumMap<>(Operation.class);
+    private final AliasMode aliasMode;
+    private ObjectName objectName;
+
+    public JmxSecureVaultMetrics() {
+        this(AliasMode.fromSystemProperty(ALIAS_MODE_PROPERTY, AliasMode.NONE));
+    }
+
+    /**
+     * Create metrics which keep the resolve counts per alias in the given alias mode.
+     *
+     * @param aliasMode how aliases are kept, where {@link AliasMode#NONE} keeps no resolve count per alias
+     */
+    public JmxSecureVaultMetrics(AliasMode aliasMode) {
+        this.aliasMode = aliasMode;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            errorCounts.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Register this as an MBean of the platform MBean server. An MBean which is already registered with the same
+     * name, such as the metrics of another copy of the secure vault in the same JVM, is retained, and this is not
+     * registered. A failure to register is logged, since the metrics are still recorded.
+     */
+    public synchronized void register() {
+        if (objectName != null) {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            mBeanServer.registerMBean(this, name);
+            objectName = name;
+            logger.debug("Secure vault metrics registered as MBean : {}", OBJECT_NAME);
+        } catch (InstanceAlreadyExistsException e) {
+            logger.info("Secure vault metrics MBean is already registered by another secure vault, hence these " +
+                    "metrics are not exposed : {}", OBJECT_NAME);
+        } catch (JMException e) {
+            logger.warn("Failed to register secure vault metrics MBean : " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Unregister this from the platform MBean server, if this has been registered.
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.debug("Secure vault metrics MBean is already unregistered : {}", OBJECT_NAME);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public void recordResolve(long latencyNanos) {
+        latencies.get(Operation.RESOLVE).record(latencyNanos);
+    }
+
+    @Override
+    public void recordResolveResult(String alias, boolean found) {
+        (found ? resolveHitCount : resolveMissCount).increment();
+        String aliasValue = aliasMode.getAliasValue(alias);
+        if (aliasValue == null) {
+            return;
+        }
+        LongAdder aliasCount = resolveCountByAlias.get(aliasValue);
+        if (aliasCount == null) {
+            // Bounds the memory held for callers which resolve arbitrary aliases
+            if (resolveCountByAlias.size() >= MAX_TRACKED_ALIASES) {
+                return;
+            }
+            aliasCount = resolveCountByAlias.computeIfAbsent(aliasValue, key -> new LongAdder());
+        }
+        aliasCount.increment();
+    }
+
+    @Override
+    public void recordEncrypt(long bytes, long latencyNanos) {
+        encryptedBytes.add(bytes);
+        latencies.get(Operation.ENCRYPT).record(latencyNanos);
+    }
+
+    @Override
+    public void recordDecrypt(long bytes, long latencyNanos) {
+        decryptedBytes.add(bytes);
+        latencies.get(Operation.DECRYPT).record(latencyNanos);
+    }
+
+    @Override
+    public void recordSecretDecryption(long latencyNanos) {
+        latencies.get(Operation.SECRET_DECRYPTION).record(latencyNanos);
+    }
+
+    @Override
+    public void recordError(Operation operation) {
+        errorCounts.get(operation).increment();
+    }
+
+    @Override
+    public long getResolveHitCount() {
+        return resolveHitCount.sum();
+    }
+
+    @Override
+    public long getResolveMissCount() {
+        return resolveMissCount.sum();
+    }
+
+    @Override
+    public long getResolveErrorCount() {
+        return errorCounts.get(Operation.RESOLVE).sum();
+    }
+
+    @Override
+    public LatencySnapshot getResolveLatency() {
+        return latencies.get(Operation.RESOLVE).snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getResolveCountByAlias() {
+        Map<String, Long> counts = new TreeMap<>();
+        resolveCountByAlias.forEach((alias, count) -> counts.put(alias, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getEncryptErrorCount() {
+        return errorCounts.get(Operation.ENCRYPT).sum();
+    }
+
+    @Override
+    public long getEncryptedBytes() {
+        return encryptedBytes.sum();
+    }
+
+    @Override
+    public LatencySnapshot getEncryptLatency() {
+        return latencies.get(Operation.ENCRYPT).snapshot();
+    }
+
+    @Override
+    public long getDecryptErrorCount() {
+        return errorCounts.get(Operation.DECRYPT).sum();
+    }
+
+    @Override
+    public long getDecryptedBytes() {
+        return decryptedBytes.sum();
+    }
+
+    @Override
+    public LatencySnapshot getDecryptLatency() {
+        return latencies.get(Operation.DECRYPT).snapshot();
+    }
+
+    @Override
+    public long getSecretDecryptionErrorCount() {
+        return errorCounts.get(Operation.SECRET_DECRYPTION).sum();
+    }
+
+    @Override
+    public LatencySnapshot getSecretDecryptionLatency() {
+        return latencies.get(Operation.SECRET_DECRYPTION).snapshot();
+    }
+
+    @Override
+    public void reset() {
+        resolveHitCount.reset();
+        resolveMissCount.reset();
+        resolveCountByAlias.clear();
+        encryptedBytes.reset();
+        decryptedBytes.reset();
+        latencies.values().forEach(LatencyHistogram::reset);
+        errorCounts.values().forEach(LongAdder::reset);
+    }
+}
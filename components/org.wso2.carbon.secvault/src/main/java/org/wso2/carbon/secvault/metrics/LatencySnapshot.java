@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable snapshot of a {@link LatencyHistogram}. Latencies are given in microseconds, and are exposed as the
+ * items of a composite attribute by {@link SecureVaultMetricsMXBean}.
+ *
+ * @since 5.0.23
+ */
+public final class LatencySnapshot {
+    private static final double NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+
+    LatencySnapshot(long count, long totalNanos, long maxNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                    long p999Nanos) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return count == 0 ? 0 : totalNanos / NANOS_PER_MICRO / count;
+    }
+
+    public double getMaxMicros() {
+        return maxNanos / NANOS_PER_MICRO;
+    }
+
+    public double getP50Micros() {
+        return p50Nanos / NANOS_PER_MICRO;
+    }
+
+    public double getP90Micros() {
+        return p90Nanos / NANOS_PER_MICRO;
+    }
+
+    public double getP99Micros() {
+        return p99Nanos / NANOS_PER_MICRO;
+    }
+
+    public double getP999Micros() {
+        return p999Nanos / NANOS_PER_MICRO;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the metrics recorded by {@link JmxSecureVaultMetrics}. Counts and latencies are cumulative
+ * since the secure vault started, or since the metrics were last reset.
+ *
+ * @since 5.0.23
+ */
+public interface SecureVaultMetricsMXBean {
+
+    long getResolveHitCount();
+
+    long getResolveMissCount();
+
+    long getResolveErrorCount();
+
+    LatencySnapshot getResolveLatency();
+
+    /**
+     * Get the number of times each alias is resolved, which reveals the callers that resolve the same alias
+     * repeatedly rather than retaining the secret. Up to {@link JmxSecureVaultMetrics#MAX_TRACKED_ALIASES} aliases
+     * are tracked, and only if {@link JmxSecureVaultMetrics#ALIAS_MODE_PROPERTY} opts in to it.
+     *
+     * @return resolve count of each tracked alias, or of each hash of a tracked alias if aliases are redacted
+     */
+    Map<String, Long> getResolveCountByAlias();
+
+    long getEncryptErrorCount();
+
+    long getEncryptedBytes();
+
+    LatencySnapshot getEncryptLatency();
+
+    long getDecryptErrorCount();
+
+    long getDecryptedBytes();
+
+    LatencySnapshot getDecryptLatency();
+
+    long getSecretDecryptionErrorCount();
+
+    LatencySnapshot getSecretDecryptionLatency();
+
+    /**
+     * Clear all the recorded counts and latencies.
+     */
+    void reset();
+}
@@ -25,6 +25,8 @@ import org.wso2.carbon.secvault.MasterKey;
 import org.wso2.carbon.secvault.MasterKeyReader;
 import org.wso2.carbon.secvault.SecureVaultConstants;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.internal.FlightRecorderEvents;
+import org.wso2.carbon.secvault.internal.StartupTimelineRecorder;
 import org.wso2.carbon.secvault.model.MasterKeyReaderConfiguration;
 import org.wso2.carbon.secvault.model.masterkey.MasterKeyConfiguration;
 import org.yaml.snakeyaml.LoaderOptions;
@@ -91,16 +93,28 @@ public class DefaultMasterKeyReader implements MasterKeyReader {
         Path masterKeysFilePath = Paths.get(masterKeyReaderConfiguration
                 .getParameter(SecureVaultConstants.MASTER_KEYS_YAML_CONFIG_PROPERTY)
                 .orElseThrow(() -> new SecureVaultException("Master keys YAML path not found")));
+        Object event = FlightRecorderEvents.MASTER_KEY_READ.begin();
+        boolean masterKeysFileExists = Files.exists(masterKeysFilePath);
 
-        if (Files.exists(masterKeysFilePath)) {
-            readMasterKeysFile(masterKeysFilePath, masterKeys);
+        if (masterKeysFileExists) {
+            try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("file")) {
+                readMasterKeysFile(masterKeysFilePath, masterKeys);
+            }
+        }
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("environment variables")) {
+            readMasterKeysFromEnvironment(masterKeys);
+        }
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("system properties")) {
+            readMasterKeysFromSystem(masterKeys);
         }
-        readMasterKeysFromEnvironment(masterKeys);
-        readMasterKeysFromSystem(masterKeys);
 
         if (!fullyInitialized(masterKeys)) {
-            readMasterKeysFromConsole(masterKeys);
+            try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("console")) {
+                readMasterKeysFromConsole(masterKeys);
+            }
         }
+        FlightRecorderEvents.commit(event, masterKeys.size(), masterKeysFileExists ? masterKeysFilePath.toString() :
+                null);
     }
 
     private void readMasterKeysFromEnvironment(List<MasterKey> masterKeys) throws SecureVaultException {
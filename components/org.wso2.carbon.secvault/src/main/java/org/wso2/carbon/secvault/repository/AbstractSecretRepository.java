@@ -18,19 +18,36 @@ package org.wso2.carbon.secvault.repository;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.CipherResult;
+import org.wso2.carbon.secvault.PlaceholderResolver;
 import org.wso2.carbon.secvault.SecretRepository;
 import org.wso2.carbon.secvault.SecureVaultConstants;
 import org.wso2.carbon.secvault.SecureVaultUtils;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.internal.FlightRecorderEvents;
+import org.wso2.carbon.secvault.internal.SecureVaultDataHolder;
+import org.wso2.carbon.secvault.internal.StartupTimelineRecorder;
 import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
 
-import java.io.IOException;
-import java.io.StringReader;
+import java.nio.CharBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * This abstract class implements {@link SecretRepository} and it provides basic implementations for
@@ -42,48 +59,434 @@ import java.util.Properties;
  */
 public abstract class AbstractSecretRepository implements SecretRepository {
     private static Logger logger = LoggerFactory.getLogger(AbstractSecretRepository.class);
-    private final Map<String, char[]> secrets = new HashMap<>();
+    private static final CharBuffer EMPTY_SECRET_VIEW =
+            CharBuffer.wrap(SecretEntry.EMPTY_PLAIN_TEXT).asReadOnlyBuffer();
+    // Immutable snapshot of the loaded secrets, which is replaced as a whole on every load
+    private volatile Map<String, SecretEntry> secrets = Collections.emptyMap();
+    private SecretsFileWatcher secretsFileWatcher;
+    // Set once closed, so that a reload which was pending on close does not load the secrets again, guarded by this
+    private boolean closed;
+    private volatile SecretCache secretCache;
+    private boolean offHeapStorage;
+    private OffHeapSecretStore offHeapSecretStore;
+    private boolean storageConfigured;
+    private volatile int decryptionParallelism = 1;
+    private volatile int batchParallelism = Runtime.getRuntime().availableProcessors();
+    // Created on first use, and shut down on close or once the configured parallelism changes, guarded by this
+    private ForkJoinPool decryptionPool;
+    private ForkJoinPool batchPool;
 
     @Override
-    public void loadSecrets(SecretRepositoryConfiguration secretRepositoryConfiguration)
+    public synchronized void loadSecrets(SecretRepositoryConfiguration secretRepositoryConfiguration)
             throws SecureVaultException {
-        logger.debug("Loading secrets to SecretRepository");
+        closed = false;
         Path secretPropertiesFilePath = Paths.get(secretRepositoryConfiguration
                 .getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY)
                 .orElseThrow(() -> new SecureVaultException("Secret properties path not found")));
-        String resolvedFileContent = SecureVaultUtils.resolveFileToString(secretPropertiesFilePath);
-        Properties secretsProperties = new Properties();
-        try {
-            secretsProperties.load(new StringReader(resolvedFileContent));
-        } catch (IOException e) {
-            throw new SecureVaultException("Failed to load secrets.properties file", e);
+        configureStorage(secretRepositoryConfiguration);
+        loadSecrets(secretPropertiesFilePath, secretRepositoryConfiguration);
+
+        if (Boolean.parseBoolean(secretRepositoryConfiguration
+                .getParameter(SecureVaultConstants.WATCH_SECRETS_FILE_CONFIG_PROPERTY).orElse("false").trim())) {
+            watchSecretsFile(secretPropertiesFilePath, secretRepositoryConfiguration);
         }
+    }
 
-        for (Map.Entry<Object, Object> entry : secretsProperties.entrySet()) {
-            String key = entry.getKey().toString().trim();
-            String value = entry.getValue().toString().trim();
+    /**
+     * Load the secrets of the given secrets file and publish them in place of the current secrets.
+     *
+     * @param secretPropertiesFilePath      secrets file to load
+     * @param secretRepositoryConfiguration secret repository configuration
+     * @throws SecureVaultException on an error while loading the secrets, in which case current secrets are retained
+     */
+    private synchronized void loadSecrets(Path secretPropertiesFilePath,
+                                          SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        logger.debug("Loading secrets to SecretRepository");
+        Object event = FlightRecorderEvents.SECRET_LOAD.begin();
+        // Ends with the enclosing phase if parsing fails
+        StartupTimelineRecorder.Phase parsePhase = StartupTimelineRecorder.phase("parse");
+        // Cached secrets are always decrypted on demand, so that only the secrets in use are retained
+        boolean lazyDecryption = isLazyDecryption(secretRepositoryConfiguration) || secretCache != null;
+        Map<String, SecretEntry> currentSecrets = secrets;
+        Map<String, SecretEntry> loadedSecrets = new HashMap<>();
+        List<SecretEntry> encryptedEntries = new ArrayList<>();
 
-            char[] decryptedPassword;
-            String[] tokens = value.split(SecureVaultConstants.SPACE);
+        SecretsFileReader.read(secretPropertiesFilePath, PlaceholderResolver.snapshot(), (key, cipherText, secret) -> {
+            SecretEntry secretEntry = cipherText ?
+                    SecretEntry.ofCipherText(key, SecureVaultUtils.base64Decode(SecureVaultUtils.toBytes(secret))) :
+                    SecretEntry.ofPlainText(key, secret.toCharArray());
+            // Reuse the current entry of an unchanged secret, so that it is not decrypted again
+            SecretEntry currentEntry = currentSecrets.get(key);
+            if (currentEntry != null && currentEntry.isSameSecret(secretEntry)) {
+                secretEntry = currentEntry;
+            } else if (cipherText) {
+                encryptedEntries.add(secretEntry);
+            }
+            SecretEntry replacedEntry = loadedSecrets.put(key, secretEntry);
+            // The last entry of a key wins, as with properties files
+            if (replacedEntry != null && replacedEntry != currentEntry) {
+                encryptedEntries.remove(replacedEntry);
+                replacedEntry.wipe();
+            }
+        });
+        parsePhase.count("secrets", loadedSecrets.size());
+        parsePhase.count("cipherTexts", encryptedEntries.size());
+        parsePhase.close();
+        long parallelism = getLongParameter(secretRepositoryConfiguration,
+                SecureVaultConstants.DECRYPTION_PARALLELISM_CONFIG_PROPERTY, "decryption parallelism",
+                Runtime.getRuntime().availableProcessors(), 1);
+        // Short.MAX_VALUE is the maximum parallelism supported by ForkJoinPool
+        decryptionParallelism = (int) Math.min(parallelism, Short.MAX_VALUE);
+        if (!lazyDecryption) {
+            try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("decrypt")) {
+                phase.count("secrets", encryptedEntries.size());
+                decryptSecrets(encryptedEntries, decryptionParallelism);
+            }
+        }
+        OffHeapSecretStore currentSecretStore = offHeapSecretStore;
+        if (offHeapStorage) {
+            offHeapSecretStore = OffHeapSecretStore.store(loadedSecrets.values());
+        }
+        secrets = Collections.unmodifiableMap(loadedSecrets);
 
-            if (tokens.length != 2) {
-                logger.error("Secret properties file contains an invalid entry at key : {}", key);
-                continue;
+        int removedCount = 0;
+        for (Map.Entry<String, SecretEntry> currentEntry : currentSecrets.entrySet()) {
+            if (loadedSecrets.get(currentEntry.getKey()) != currentEntry.getValue()) {
+                if (secretCache != null) {
+                    secretCache.remove(currentEntry.getValue());
+                }
+                currentEntry.getValue().wipe();
+                removedCount++;
             }
+        }
+        if (currentSecretStore != null) {
+            // Remaining entries have been moved to the new store
+            currentSecretStore.wipe();
+        }
+        FlightRecorderEvents.commit(event, secretPropertiesFilePath.toString(), loadedSecrets.size(),
+                encryptedEntries.size(), !lazyDecryption);
+        logger.debug("Secret repository loaded with '{}' secrets, '{}' new or changed cipher texts and '{}' " +
+                "removed or replaced secrets", loadedSecrets.size(), encryptedEntries.size(), removedCount);
+    }
+
+    /**
+     * Stop watching the secrets file and wipe all loaded secrets from memory. The repository resolves no secrets
+     * after this, unless the secrets are loaded again.
+     *
+     * @since 5.0.23
+     */
+    public synchronized void close() {
+        closed = true;
+        stopWatchingSecretsFile();
+        Map<String, SecretEntry> closedSecrets = secrets;
+        secrets = Collections.emptyMap();
+        for (SecretEntry secretEntry : closedSecrets.values()) {
+            if (secretCache != null) {
+                secretCache.remove(secretEntry);
+            }
+            secretEntry.wipe();
+        }
+        if (offHeapSecretStore != null) {
+            offHeapSecretStore.wipe();
+            offHeapSecretStore = null;
+        }
+        if (secretCache != null) {
+            secretCache.close();
+        }
+        if (decryptionPool != null) {
+            decryptionPool.shutdown();
+            decryptionPool = null;
+        }
+        if (batchPool != null) {
+            batchPool.shutdown();
+            batchPool = null;
+        }
+        logger.debug("Secret repository closed, '{}' secrets wiped", closedSecrets.size());
+    }
+
+    /**
+     * Stop reloading the secrets when the secrets file changes, if the secrets file is being watched.
+     *
+     * @since 5.0.23
+     */
+    public synchronized void stopWatchingSecretsFile() {
+        if (secretsFileWatcher != null) {
+            secretsFileWatcher.stop();
+            secretsFileWatcher = null;
+        }
+    }
+
+    /**
+     * Start reloading the secrets whenever the secrets file changes, unless it is already being watched.
+     *
+     * @param secretPropertiesFilePath      secrets file to watch
+     * @param secretRepositoryConfiguration secret repository configuration to reload the secrets with
+     * @throws SecureVaultException if the configured debounce time is invalid or the file cannot be watched
+     */
+    private synchronized void watchSecretsFile(Path secretPropertiesFilePath,
+                                               SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        if (secretsFileWatcher != null) {
+            return;
+        }
+        long debounceMillis = getLongParameter(secretRepositoryConfiguration,
+                SecureVaultConstants.WATCH_DEBOUNCE_CONFIG_PROPERTY, "watch debounce time",
+                SecureVaultConstants.DEFAULT_WATCH_DEBOUNCE_MILLIS, 0);
+        SecretsFileWatcher watcher = new SecretsFileWatcher(secretPropertiesFilePath, debounceMillis,
+                () -> reloadSecrets(secretPropertiesFilePath, secretRepositoryConfiguration));
+        watcher.start();
+        secretsFileWatcher = watcher;
+    }
+
+    /**
+     * Load the secrets of the changed secrets file, unless the repository has been closed meanwhile, in which case
+     * the watcher may still have been waiting to reload while the repository was closed.
+     */
+    private synchronized void reloadSecrets(Path secretPropertiesFilePath,
+                                            SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        if (closed) {
+            logger.debug("Secret repository is closed, hence the changed secrets file is not reloaded");
+            return;
+        }
+        loadSecrets(secretPropertiesFilePath, secretRepositoryConfiguration);
+    }
+
+    /**
+     * Decrypt the given secret entries, spreading them across the given number of threads. Decryption failures are
+     * reported per alias by {@link SecretEntry}.
+     *
+     * @param secretEntries secret entries to decrypt
+     * @param parallelism   maximum number of threads to decrypt with
+     * @throws SecureVaultException on an unexpected error while decrypting
+     */
+    private void decryptSecrets(List<SecretEntry> secretEntries, int parallelism) throws SecureVaultException {
+        if (parallelism == 1 || secretEntries.size() <= 1) {
+            secretEntries.forEach(secretEntry -> secretEntry.decrypt(this));
+            return;
+        }
+        List<Callable<Void>> tasks = secretEntries.stream()
+                .map(secretEntry -> (Callable<Void>) () -> {
+                    secretEntry.decrypt(this);
+                    return null;
+                })
+                .collect(Collectors.toList());
+        int threadCount = Math.min(parallelism, secretEntries.size());
+        invokeAll(tasks, getDecryptionPool(parallelism), "decrypt secrets");
+        logger.debug("Decrypted '{}' secrets using '{}' threads", secretEntries.size(), threadCount);
+    }
+
+    /**
+     * Run the given tasks on the given pool, and wait for all of them to complete.
+     *
+     * @param tasks     tasks to run
+     * @param pool      pool to run the tasks on
+     * @param operation description of the tasks, for error messages
+     * @throws SecureVaultException if a task fails unexpectedly, if the pool is shut down, or on interruption
+     */
+    private static void invokeAll(List<Callable<Void>> tasks, ForkJoinPool pool, String operation)
+            throws SecureVaultException {
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SecureVaultException("Interrupted while trying to " + operation, e);
+        } catch (ExecutionException e) {
+            throw new SecureVaultException("Failed to " + operation, e.getCause());
+        } catch (RejectedExecutionException e) {
+            throw new SecureVaultException("Failed to " + operation + ", since the thread pool is shut down", e);
+        }
+    }
+
+    private synchronized ForkJoinPool getDecryptionPool(int parallelism) {
+        if (decryptionPool == null || decryptionPool.getParallelism() != parallelism) {
+            if (decryptionPool != null) {
+                decryptionPool.shutdown();
+            }
+            decryptionPool = new ForkJoinPool(parallelism);
+        }
+        return decryptionPool;
+    }
+
+    private synchronized ForkJoinPool getBatchPool(int parallelism) {
+        if (batchPool == null || batchPool.getParallelism() != parallelism) {
+            if (batchPool != null) {
+                batchPool.shutdown();
+            }
+            batchPool = new ForkJoinPool(parallelism);
+        }
+        return batchPool;
+    }
+
+    /**
+     * Configure the maximum number of threads used by {@link #encryptBatch} and {@link #decryptBatch}. An extended
+     * class should call this when it is initialized, otherwise batches use the number of available processors.
+     *
+     * @param secretRepositoryConfiguration secret repository configuration
+     * @throws SecureVaultException if the configured batch parallelism is invalid
+     * @since 5.0.23
+     */
+    protected void initBatchParallelism(SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        long parallelism = getLongParameter(secretRepositoryConfiguration,
+                SecureVaultConstants.BATCH_PARALLELISM_CONFIG_PROPERTY, "batch parallelism",
+                Runtime.getRuntime().availableProcessors(), 1);
+        batchParallelism = (int) Math.min(parallelism, Short.MAX_VALUE);
+    }
 
-            String updatedTokenValue = SecureVaultUtils.substituteVariables(tokens[1]);
-            if (SecureVaultConstants.CIPHER_TEXT.equals(tokens[0])) {
-                byte[] base64Decoded = SecureVaultUtils.base64Decode(SecureVaultUtils.toBytes(updatedTokenValue));
-                decryptedPassword = SecureVaultUtils.toChars(decrypt(base64Decoded));
-            } else if (SecureVaultConstants.PLAIN_TEXT.equals(tokens[0])) {
-                decryptedPassword = updatedTokenValue.toCharArray();
-            } else {
-                logger.error("Unknown prefix in secrets file");
-                continue;
+    @Override
+    public List<CipherResult> encryptBatch(List<byte[]> plainTexts) throws SecureVaultException {
+        return processBatch(plainTexts, this::encrypt, "encrypt the batch");
+    }
+
+    @Override
+    public List<CipherResult> decryptBatch(List<byte[]> cipherTexts) throws SecureVaultException {
+        return processBatch(cipherTexts, this::decrypt, "decrypt the batch");
+    }
+
+    /**
+     * Apply the given cipher operation to each of the given inputs, splitting the inputs into one contiguous chunk
+     * per thread. Ciphers are pooled by the cipher provider, so the threads do not contend on a single cipher.
+     *
+     * @param inputs          inputs to process
+     * @param cipherOperation encryption or decryption of a single input
+     * @param operation       description of the batch, for error messages
+     * @return result of each input, in the order of the given inputs
+     * @throws SecureVaultException if the batch fails unexpectedly, or on interruption
+     */
+    private List<CipherResult> processBatch(List<byte[]> inputs, CipherOperation cipherOperation, String operation)
+            throws SecureVaultException {
+        CipherResult[] results = new CipherResult[inputs.size()];
+        int threadCount = Math.min(batchParallelism, inputs.size());
+        if (threadCount <= 1) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = apply(cipherOperation, inputs.get(i));
             }
-            secrets.put(key, decryptedPassword);
+            return Arrays.asList(results);
+        }
+        int chunkSize = (results.length + threadCount - 1) / threadCount;
+        List<Callable<Void>> tasks = new ArrayList<>(threadCount);
+        for (int chunkStart = 0; chunkStart < results.length; chunkStart += chunkSize) {
+            int start = chunkStart;
+            int end = Math.min(chunkStart + chunkSize, results.length);
+            tasks.add(() -> {
+                for (int i = start; i < end; i++) {
+                    results[i] = apply(cipherOperation, inputs.get(i));
+                }
+                return null;
+            });
+        }
+        invokeAll(tasks, getBatchPool(batchParallelism), operation);
+        logger.debug("Processed a batch of '{}' inputs using '{}' threads", results.length, threadCount);
+        return Arrays.asList(results);
+    }
+
+    private static CipherResult apply(CipherOperation cipherOperation, byte[] input) {
+        try {
+            return CipherResult.success(cipherOperation.apply(input));
+        } catch (SecureVaultException e) {
+            return CipherResult.failure(e);
+        }
+    }
+
+    /**
+     * Set up how decrypted secrets are held, on the first load of the secrets.
+     *
+     * @param secretRepositoryConfiguration secret repository configuration
+     * @throws SecureVaultException if the configured storage options are invalid or cannot be combined
+     */
+    private synchronized void configureStorage(SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        if (storageConfigured) {
+            return;
+        }
+        SecretCache configuredSecretCache = createSecretCache(secretRepositoryConfiguration);
+        boolean configuredOffHeapStorage = Boolean.parseBoolean(secretRepositoryConfiguration
+                .getParameter(SecureVaultConstants.OFF_HEAP_SECRETS_CONFIG_PROPERTY).orElse("false").trim());
+        if (configuredOffHeapStorage &&
+                (configuredSecretCache != null || isLazyDecryption(secretRepositoryConfiguration))) {
+            throw new SecureVaultException("Off-heap secret storage cannot be combined with lazy decryption or a " +
+                    "secret cache");
+        }
+        secretCache = configuredSecretCache;
+        offHeapStorage = configuredOffHeapStorage;
+        storageConfigured = true;
+    }
+
+    /**
+     * Create the cache of decrypted secrets, if a maximum number of cached secrets is configured.
+     *
+     * @param secretRepositoryConfiguration secret repository configuration
+     * @return secret cache, or null if decrypted secrets are not to be evicted
+     * @throws SecureVaultException if the configured cache size or expiry time is invalid
+     */
+    private static SecretCache createSecretCache(SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        long maxEntries = getLongParameter(secretRepositoryConfiguration,
+                SecureVaultConstants.SECRET_CACHE_MAX_ENTRIES_CONFIG_PROPERTY, "secret cache size", 0, 0);
+        if (maxEntries == 0) {
+            return null;
+        }
+        long expiryMillis = getLongParameter(secretRepositoryConfiguration,
+                SecureVaultConstants.SECRET_CACHE_EXPIRY_CONFIG_PROPERTY, "secret cache expiry time", 0, 0);
+        logger.debug("Retaining at most '{}' decrypted secrets for '{}' ms after their last use", maxEntries,
+                expiryMillis);
+        return new SecretCache((int) Math.min(maxEntries, Integer.MAX_VALUE), expiryMillis);
+    }
+
+    /**
+     * Get a numeric secret repository parameter.
+     *
+     * @param secretRepositoryConfiguration secret repository configuration
+     * @param parameterName                 name of the parameter
+     * @param description                   description of the parameter, for error messages
+     * @param defaultValue                  value to use if the parameter is not set
+     * @param minValue                      minimum allowed value
+     * @return value of the parameter
+     * @throws SecureVaultException if the configured value is not a number, or is less than the minimum value
+     */
+    private static long getLongParameter(SecretRepositoryConfiguration secretRepositoryConfiguration,
+                                         String parameterName, String description, long defaultValue,
+                                         long minValue) throws SecureVaultException {
+        String parameter = secretRepositoryConfiguration.getParameter(parameterName).orElse(null);
+        if (parameter == null) {
+            return defaultValue;
+        }
+        long value;
+        try {
+            value = Long.parseLong(parameter.trim());
+        } catch (NumberFormatException e) {
+            throw new SecureVaultException("Invalid " + description + " : " + parameter, e);
+        }
+        if (value < minValue) {
+            throw new SecureVaultException("Invalid " + description + " : " + parameter);
+        }
+        return value;
+    }
+
+    /**
+     * Check whether cipher texts should be decrypted on the first resolve of each alias instead of at load time.
+     *
+     * @param secretRepositoryConfiguration secret repository configuration
+     * @return true if the lazy decryption mode is configured
+     * @throws SecureVaultException if the configured decryption mode is not supported
+     */
+    private static boolean isLazyDecryption(SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        String decryptionMode = secretRepositoryConfiguration
+                .getParameter(SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY)
+                .orElse(SecureVaultConstants.DECRYPTION_MODE_EAGER).trim().toLowerCase(Locale.ENGLISH);
+        switch (decryptionMode) {
+            case SecureVaultConstants.DECRYPTION_MODE_EAGER:
+                return false;
+            case SecureVaultConstants.DECRYPTION_MODE_LAZY:
+                return true;
+            default:
+                throw new SecureVaultException("Unsupported decryption mode : " + decryptionMode);
         }
-        logger.debug("Secret repository loaded with '{}' secrets", secrets.size());
     }
 
     @Override
@@ -93,39 +496,114 @@ public abstract class AbstractSecretRepository implements SecretRepository {
         Path secretPropertiesFilePath = Paths.get(secretRepositoryConfiguration
                 .getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY)
                 .orElseThrow(() -> new SecureVaultException("Secret properties path not found")));
-        Properties secretsProperties = SecureVaultUtils.loadSecretFile(secretPropertiesFilePath);
-
-        int count = 0;
-        for (Map.Entry<Object, Object> entry : secretsProperties.entrySet()) {
-            String key = entry.getKey().toString().trim();
-            String value = entry.getValue().toString().trim();
-
-            byte[] encryptedPassword;
-            String[] tokens = value.split(SecureVaultConstants.SPACE);
-            if (tokens.length != 2) {
-                logger.error("Secret properties file contains an invalid entry at key : {}", key);
-                continue;
+        int count = SecretsFileWriter.encryptPlainTexts(secretPropertiesFilePath, this);
+        logger.debug("Secrets file updated with '{}' new encrypted secrets", count);
+    }
+
+    @Override
+    public char[] resolve(String alias) {
+        Map<String, SecretEntry> currentSecrets;
+        do {
+            currentSecrets = secrets;
+            SecretEntry secretEntry = currentSecrets.get(alias);
+            if (secretEntry != null) {
+                // Hand out a copy, since the plain text held by the entry is wiped once it is replaced or evicted
+                SecretCache currentSecretCache = secretCache;
+                char[] secret = currentSecretCache == null ? secretEntry.copyPlainText(this) :
+                        currentSecretCache.read(secretEntry, entry -> entry.copyPlainText(this));
+                if (secret.length != 0) {
+                    recordResolveResult(alias, true);
+                    return secret;
+                }
             }
+            // An entry of a replaced snapshot may have been wiped meanwhile, hence retry with the new snapshot
+        } while (currentSecrets != secrets);
+        recordResolveResult(alias, false);
+        return SecretEntry.EMPTY_PLAIN_TEXT;
+    }
 
-            if (SecureVaultConstants.PLAIN_TEXT.equals(tokens[0])) {
-                encryptedPassword = SecureVaultUtils.base64Encode(encrypt(SecureVaultUtils.toBytes(tokens[1].trim())));
-                secretsProperties.setProperty(key, SecureVaultConstants.CIPHER_TEXT + " "
-                        + new String(SecureVaultUtils.toChars(encryptedPassword)));
-                count++;
+    @Override
+    public Map<String, char[]> resolveAll(Collection<String> aliases) {
+        // Decrypt the secrets which are not decrypted yet together, rather than one by one on resolve
+        Map<String, SecretEntry> currentSecrets = secrets;
+        Map<String, SecretEntry> pendingEntries = new LinkedHashMap<>();
+        for (String alias : aliases) {
+            SecretEntry secretEntry = currentSecrets.get(alias);
+            if (secretEntry != null && !secretEntry.isDecrypted()) {
+                pendingEntries.put(alias, secretEntry);
+            }
+        }
+        if (!pendingEntries.isEmpty()) {
+            try {
+                decryptSecrets(new ArrayList<>(pendingEntries.values()), decryptionParallelism);
+            } catch (SecureVaultException e) {
+                // Remaining secrets are decrypted one by one on resolve
+                logger.error("Failed to decrypt secrets in parallel", e);
             }
         }
 
-        SecureVaultUtils.updateSecretFile(secretPropertiesFilePath, secretsProperties);
+        Map<String, char[]> resolvedSecrets = new LinkedHashMap<>();
+        for (String alias : aliases) {
+            resolvedSecrets.computeIfAbsent(alias, this::resolve);
+        }
+        return resolvedSecrets;
+    }
 
-        logger.debug("Secrets file updated with '{}' new encrypted secrets", count);
+    @Override
+    public int resolveInto(String alias, char[] destination) throws SecureVaultException {
+        Map<String, SecretEntry> currentSecrets;
+        do {
+            currentSecrets = secrets;
+            SecretEntry secretEntry = currentSecrets.get(alias);
+            if (secretEntry != null) {
+                SecretCache currentSecretCache = secretCache;
+                int length = currentSecretCache == null ? secretEntry.copyPlainTextInto(this, destination) :
+                        currentSecretCache.read(secretEntry, entry -> entry.copyPlainTextInto(this, destination));
+                if (length > destination.length) {
+                    throw new SecureVaultException("Destination array is too small, '" + length + "' characters " +
+                            "are required but only '" + destination.length + "' are available");
+                }
+                if (length != 0) {
+                    recordResolveResult(alias, true);
+                    return length;
+                }
+            }
+        } while (currentSecrets != secrets);
+        recordResolveResult(alias, false);
+        return 0;
     }
 
     @Override
-    public char[] resolve(String alias) {
-        char[] secret = secrets.get(alias);
-        if (secret != null && secret.length != 0) {
-            return secret;
-        }
-        return new char[0];
+    @SuppressWarnings("unchecked")
+    public <T> T withSecret(String alias, Function<CharBuffer, T> function) {
+        Map<String, SecretEntry> currentSecrets;
+        do {
+            currentSecrets = secrets;
+            SecretEntry secretEntry = currentSecrets.get(alias);
+            if (secretEntry == null) {
+                break;
+            }
+            SecretCache currentSecretCache = secretCache;
+            Object result = currentSecretCache == null ? secretEntry.withPlainText(this, function) :
+                    currentSecretCache.read(secretEntry, entry -> entry.withPlainText(this, function));
+            if (result != SecretEntry.WIPED) {
+                recordResolveResult(alias, true);
+                return (T) result;
+            }
+        } while (currentSecrets != secrets);
+        recordResolveResult(alias, false);
+        return function.apply(EMPTY_SECRET_VIEW);
+    }
+
+    private static void recordResolveResult(String alias, boolean found) {
+        SecureVaultDataHolder.getInstance().getSecureVaultMetrics().recordResolveResult(alias, found);
+    }
+
+    /**
+     * Encryption or decryption of a single input of a batch.
+     */
+    @FunctionalInterface
+    private interface CipherOperation {
+        byte[] apply(byte[] input) throws SecureVaultException;
     }
 }
@@ -26,8 +26,12 @@ import org.wso2.carbon.secvault.MasterKeyReader;
 import org.wso2.carbon.secvault.SecretRepository;
 import org.wso2.carbon.secvault.cipher.JKSBasedCipherProvider;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.internal.StartupTimelineRecorder;
 import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -65,10 +69,13 @@ public class DefaultSecretRepository extends AbstractSecretRepository {
         List<MasterKey> masterKeys = new ArrayList<>();
         masterKeys.add(new MasterKey(JKSBasedCipherProvider.KEY_STORE_PASSWORD));
         masterKeys.add(new MasterKey(JKSBasedCipherProvider.PRIVATE_KEY_PASSWORD));
-        masterKeyReader.readMasterKeys(masterKeys);
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("master keys read")) {
+            masterKeyReader.readMasterKeys(masterKeys);
+        }
 
         jksBasedCipherProvider = new JKSBasedCipherProvider();
         jksBasedCipherProvider.init(secretRepositoryConfiguration, masterKeys);
+        initBatchParallelism(secretRepositoryConfiguration);
 
         logger.debug("DefaultSecretRepository initialized with '{}'", JKSBasedCipherProvider.class.getName());
     }
@@ -82,4 +89,24 @@ public class DefaultSecretRepository extends AbstractSecretRepository {
     public byte[] decrypt(byte[] cipherText) throws SecureVaultException {
         return jksBasedCipherProvider.decrypt(cipherText);
     }
+
+    @Override
+    public int encrypt(ByteBuffer plainText, ByteBuffer cipherText) throws SecureVaultException {
+        return jksBasedCipherProvider.encrypt(plainText, cipherText);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer cipherText, ByteBuffer plainText) throws SecureVaultException {
+        return jksBasedCipherProvider.decrypt(cipherText, plainText);
+    }
+
+    @Override
+    public long encrypt(ReadableByteChannel plainText, WritableByteChannel cipherText) throws SecureVaultException {
+        return jksBasedCipherProvider.encrypt(plainText, cipherText);
+    }
+
+    @Override
+    public long decrypt(ReadableByteChannel cipherText, WritableByteChannel plainText) throws SecureVaultException {
+        return jksBasedCipherProvider.decrypt(cipherText, plainText);
+    }
 }
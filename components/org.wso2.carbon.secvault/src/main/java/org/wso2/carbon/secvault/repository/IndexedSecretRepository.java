@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.repository;
+
+import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.PlaceholderResolver;
+import org.wso2.carbon.secvault.SecretRepository;
+import org.wso2.carbon.secvault.SecureVaultConstants;
+import org.wso2.carbon.secvault.SecureVaultMetrics;
+import org.wso2.carbon.secvault.SecureVaultUtils;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.internal.FlightRecorderEvents;
+import org.wso2.carbon.secvault.internal.SecureVaultDataHolder;
+import org.wso2.carbon.secvault.internal.StartupTimelineRecorder;
+import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
+
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * This service component provides a {@link SecretRepository} which reads the secrets from an indexed secrets file,
+ * instead of the secrets.properties file. The indexed secrets file holds the binary cipher texts of the secrets
+ * together with a hash index of their aliases, and is memory mapped when the secrets are loaded, hence loading takes
+ * the same time regardless of the number of secrets. A secret is decrypted on the first resolve of its alias, and
+ * encryption/decryption is based on the Java KeyStore as in {@link DefaultSecretRepository}.
+ * <p>
+ * The indexed secrets file is given by the <code>indexedSecretsFile</code> parameter, and defaults to the
+ * secrets.properties file with the <code>.idx</code> extension. It is compiled from the secrets.properties file by
+ * {@link #persistSecrets}, or with the <code>-compileSecrets</code> command of the cipher tool.
+ * <p>
+ * This component registers a SecretRepository as an OSGi service.
+ *
+ * @since 5.0.23
+ */
+@Component(
+        name = "org.wso2.carbon.secvault.repository.IndexedSecretRepository",
+        immediate = true,
+        service = SecretRepository.class
+)
+public class IndexedSecretRepository extends DefaultSecretRepository {
+    private static final Logger logger = LoggerFactory.getLogger(IndexedSecretRepository.class);
+    private static final CharBuffer EMPTY_SECRET_VIEW =
+            CharBuffer.wrap(SecretEntry.EMPTY_PLAIN_TEXT).asReadOnlyBuffer();
+    private volatile IndexedSecretsFile indexedSecretsFile;
+    // Entries of the resolved aliases of the current file, which are wiped once the secrets are loaded again
+    private final Map<String, SecretEntry> secretEntries = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized void loadSecrets(SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        Path path = getIndexedSecretsFile(secretRepositoryConfiguration);
+        Object event = FlightRecorderEvents.SECRET_LOAD.begin();
+        IndexedSecretsFile openedFile;
+        try (StartupTimelineRecorder.Phase phase = StartupTimelineRecorder.phase("open")) {
+            openedFile = IndexedSecretsFile.open(path);
+            phase.count("secrets", openedFile.getSecretCount());
+        }
+        indexedSecretsFile = openedFile;
+        wipeSecretEntries();
+        FlightRecorderEvents.commit(event, path.toString(), openedFile.getSecretCount(),
+                openedFile.getSecretCount(), false);
+        logger.debug("Indexed secret repository opened with '{}' secrets", openedFile.getSecretCount());
+    }
+
+    /**
+     * Compile the secrets.properties file into the indexed secrets file, encrypting the plain text secrets. The
+     * secrets.properties file is not modified.
+     *
+     * @param secretRepositoryConfiguration configuration of the secret repository
+     * @throws SecureVaultException on an error while compiling the secrets
+     */
+    @Override
+    public void persistSecrets(SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        Path secretPropertiesFilePath = Paths.get(secretRepositoryConfiguration
+                .getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY)
+                .orElseThrow(() -> new SecureVaultException("Secret properties path not found")));
+        compile(secretPropertiesFilePath, getIndexedSecretsFile(secretRepositoryConfiguration), this);
+    }
+
+    /**
+     * Compile the given secrets.properties file into an indexed secrets file. Plain text secrets are encrypted with
+     * the given secret repository, and placeholders in the secrets are resolved, hence the indexed secrets file only
+     * holds cipher texts.
+     *
+     * @param secretPropertiesFilePath secrets.properties file to compile
+     * @param indexedSecretsFilePath   indexed secrets file to write
+     * @param secretRepository         secret repository to encrypt plain text secrets with
+     * @return number of secrets in the indexed secrets file
+     * @throws SecureVaultException on an error while reading, encrypting or writing the secrets
+     */
+    public static int compile(Path secretPropertiesFilePath, Path indexedSecretsFilePath,
+                              SecretRepository secretRepository) throws SecureVaultException {
+        Map<String, byte[]> cipherTexts = new TreeMap<>();
+        SecretsFileReader.read(secretPropertiesFilePath, PlaceholderResolver.snapshot(), (key, cipherText, secret) ->
+                cipherTexts.put(key, cipherText ? SecureVaultUtils.base64Decode(SecureVaultUtils.toBytes(secret)) :
+                        secretRepository.encrypt(SecureVaultUtils.toBytes(secret))));
+        IndexedSecretsFile.write(indexedSecretsFilePath, cipherTexts);
+        logger.debug("Indexed secrets file written with '{}' secrets", cipherTexts.size());
+        return cipherTexts.size();
+    }
+
+    /**
+     * Get the indexed secrets file of the given secret repository configuration.
+     *
+     * @param secretRepositoryConfiguration configuration of the secret repository
+     * @return indexed secrets file path
+     * @throws SecureVaultException if neither the indexed secrets file nor the secrets.properties file is configured
+     */
+    public static Path getIndexedSecretsFile(SecretRepositoryConfiguration secretRepositoryConfiguration)
+            throws SecureVaultException {
+        String indexedSecretsFile = secretRepositoryConfiguration
+                .getParameter(SecureVaultConstants.INDEXED_SECRETS_FILE_CONFIG_PROPERTY).orElse(null);
+        if (indexedSecretsFile != null) {
+            return Paths.get(indexedSecretsFile);
+        }
+        Path secretPropertiesFilePath = Paths.get(secretRepositoryConfiguration
+                .getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY)
+                .orElseThrow(() -> new SecureVaultException("Indexed secrets file path not found")));
+        String fileName = secretPropertiesFilePath.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+        return secretPropertiesFilePath.resolveSibling((extensionIndex > 0 ? fileName.substring(0, extensionIndex) :
+                fileName) + SecureVaultConstants.INDEXED_SECRETS_FILE_EXTENSION);
+    }
+
+    @Override
+    public char[] resolve(String alias) {
+        IndexedSecretsFile currentFile;
+        do {
+            currentFile = indexedSecretsFile;
+            SecretEntry secretEntry = getSecretEntry(currentFile, alias);
+            if (secretEntry != null) {
+                // Hand out a copy, since the plain text held by the entry is wiped once the secrets are loaded again
+                char[] secret = secretEntry.copyPlainText(this);
+                if (secret.length != 0) {
+                    recordResolveResult(alias, true);
+                    return secret;
+                }
+            }
+            // An entry of a replaced file may have been wiped meanwhile, hence retry with the new file
+        } while (currentFile != indexedSecretsFile);
+        recordResolveResult(alias, false);
+        return SecretEntry.EMPTY_PLAIN_TEXT;
+    }
+
+    @Override
+    public int resolveInto(String alias, char[] destination) throws SecureVaultException {
+        IndexedSecretsFile currentFile;
+        do {
+            currentFile = indexedSecretsFile;
+            SecretEntry secretEntry = getSecretEntry(currentFile, alias);
+            if (secretEntry != null) {
+                int length = secretEntry.copyPlainTextInto(this, destination);
+                if (length > destination.length) {
+                    throw new SecureVaultException("Destination array is too small, '" + length + "' characters " +
+                            "are required but only '" + destination.length + "' are available");
+                }
+                if (length != 0) {
+                    recordResolveResult(alias, true);
+                    return length;
+                }
+            }
+        } while (currentFile != indexedSecretsFile);
+        recordResolveResult(alias, false);
+        return 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T withSecret(String alias, Function<CharBuffer, T> function) {
+        IndexedSecretsFile currentFile;
+        do {
+            currentFile = indexedSecretsFile;
+            SecretEntry secretEntry = getSecretEntry(currentFile, alias);
+            if (secretEntry == null) {
+                break;
+            }
+            Object result = secretEntry.withPlainText(this, function);
+            if (result != SecretEntry.WIPED) {
+                recordResolveResult(alias, true);
+                return (T) result;
+            }
+        } while (currentFile != indexedSecretsFile);
+        recordResolveResult(alias, false);
+        return function.apply(EMPTY_SECRET_VIEW);
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+        indexedSecretsFile = null;
+        wipeSecretEntries();
+        logger.debug("Indexed secret repository closed");
+    }
+
+    /**
+     * Get the entry of the given alias in the given file, which is created on the first resolve of the alias and is
+     * decrypted on its first use.
+     *
+     * @param currentFile indexed secrets file to read the cipher text from
+     * @param alias       alias of the secret
+     * @return entry of the secret, or null if there is no such secret
+     */
+    private SecretEntry getSecretEntry(IndexedSecretsFile currentFile, String alias) {
+        SecretEntry secretEntry = secretEntries.get(alias);
+        if (secretEntry != null || currentFile == null) {
+            return secretEntry;
+        }
+        byte[] cipherText;
+        try {
+            cipherText = currentFile.getCipherText(alias);
+        } catch (SecureVaultException e) {
+            logger.error("Failed to read the secret at key : " + alias, e);
+            SecureVaultDataHolder.getInstance().getSecureVaultMetrics()
+                    .recordError(SecureVaultMetrics.Operation.SECRET_DECRYPTION);
+            return null;
+        }
+        if (cipherText == null) {
+            return null;
+        }
+        secretEntry = SecretEntry.ofCipherText(alias, cipherText);
+        SecretEntry existingEntry = secretEntries.putIfAbsent(alias, secretEntry);
+        if (existingEntry != null) {
+            return existingEntry;
+        }
+        if (currentFile != indexedSecretsFile) {
+            // Secrets have been loaded again meanwhile, hence the entry may hold a replaced secret
+            secretEntries.remove(alias, secretEntry);
+            secretEntry.wipe();
+        }
+        return secretEntry;
+    }
+
+    private void wipeSecretEntries() {
+        Iterator<SecretEntry> iterator = secretEntries.values().iterator();
+        while (iterator.hasNext()) {
+            SecretEntry secretEntry = iterator.next();
+            // Removed before it is wiped, so that no wiped entry is left for a later resolve
+            iterator.remove();
+            secretEntry.wipe();
+        }
+    }
+
+    private static void recordResolveResult(String alias, boolean found) {
+        SecureVaultDataHolder.getInstance().getSecureVaultMetrics().recordResolveResult(alias, found);
+    }
+}
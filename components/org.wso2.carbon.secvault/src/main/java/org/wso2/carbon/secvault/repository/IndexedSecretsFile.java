@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.repository;
+
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * This class reads and writes the indexed secrets file, which holds the cipher texts of secrets in binary, together
+ * with a hash index of their aliases. The file is memory mapped when it is opened, and only the header is read, hence
+ * opening the file takes the same time regardless of the number of secrets, and a lookup only touches the pages of
+ * the index slots it probes and of the secret it finds.
+ * <p>
+ * The file has the following layout, where integers are big endian.
+ * <pre>
+ * | magic (4) | version (1) | reserved (3) | secret count (4) | slot count (4) |
+ * | slot 0: alias hash (4) | record offset (4) | ... | slot n - 1 |
+ * | record: alias length (2) | UTF-8 alias | cipher text length (4) | cipher text | ... |
+ * </pre>
+ * The slot count is a power of two, and a record is found by linear probing from the slot of its alias hash. Slots
+ * without a record have an offset of zero.
+ *
+ * @since 5.0.23
+ */
+final class IndexedSecretsFile {
+    static final byte VERSION = 1;
+    private static final byte[] MAGIC = {'W', 'S', 'V', 'I'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 3 + 4 + 4;
+    private static final int SLOT_LENGTH = 8;
+    private static final int MAX_ALIAS_LENGTH = 0xFFFF;
+
+    private final ByteBuffer buffer;
+    private final int secretCount;
+    private final int slotCount;
+
+    private IndexedSecretsFile(ByteBuffer buffer, int secretCount, int slotCount) {
+        this.buffer = buffer;
+        this.secretCount = secretCount;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Memory map the given indexed secrets file, and validate its header.
+     *
+     * @param path indexed secrets file
+     * @return opened indexed secrets file
+     * @throws SecureVaultException if the file cannot be read, or is not an indexed secrets file
+     */
+    static IndexedSecretsFile open(Path path) throws SecureVaultException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH || size > Integer.MAX_VALUE) {
+                throw new SecureVaultException("Invalid indexed secrets file size : " + size);
+            }
+            // The mapping remains valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to open indexed secrets file : " + path, e);
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new SecureVaultException("Given file is not an indexed secrets file : " + path);
+            }
+        }
+        byte version = buffer.get(MAGIC.length);
+        if (version != VERSION) {
+            throw new SecureVaultException("Unsupported indexed secrets file version : " + version);
+        }
+        int secretCount = buffer.getInt(MAGIC.length + 4);
+        int slotCount = buffer.getInt(MAGIC.length + 8);
+        if (slotCount <= 0 || Integer.bitCount(slotCount) != 1 || secretCount < 0 || secretCount > slotCount ||
+                (long) HEADER_LENGTH + (long) slotCount * SLOT_LENGTH > buffer.capacity()) {
+            throw new SecureVaultException("Indexed secrets file has an invalid index : " + path);
+        }
+        return new IndexedSecretsFile(buffer, secretCount, slotCount);
+    }
+
+    /**
+     * Write the given secrets to an indexed secrets file. The file is written to a new temporary file next to the
+     * given path, which is only accessible by its owner where supported, and is then moved in place, so that the file
+     * is replaced as a whole and concurrent writes do not write to the same temporary file.
+     *
+     * @param path        indexed secrets file to write
+     * @param cipherTexts cipher text of each alias
+     * @throws SecureVaultException on an error while writing the file
+     */
+    static void write(Path path, Map<String, byte[]> cipherTexts) throws SecureVaultException {
+        // At most half of the slots are used, which keeps the probe sequences short
+        int slotCount = Integer.highestOneBit(Math.max(1, cipherTexts.size()) * 2 - 1) << 1;
+        long length = HEADER_LENGTH + (long) slotCount * SLOT_LENGTH;
+        for (Map.Entry<String, byte[]> entry : cipherTexts.entrySet()) {
+            length += 2 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + 4 + entry.getValue().length;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new SecureVaultException("Secrets exceed the maximum indexed secrets file size");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        buffer.put(MAGIC).put(VERSION).put(new byte[3]).putInt(cipherTexts.size()).putInt(slotCount);
+        buffer.position(HEADER_LENGTH + slotCount * SLOT_LENGTH);
+        for (Map.Entry<String, byte[]> entry : cipherTexts.entrySet()) {
+            byte[] alias = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (alias.length > MAX_ALIAS_LENGTH) {
+                throw new SecureVaultException("Alias exceeds the maximum length : " + entry.getKey());
+            }
+            int hash = hash(entry.getKey());
+            int slot = hash & (slotCount - 1);
+            while (buffer.getInt(getSlotPosition(slot) + 4) != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            buffer.putInt(getSlotPosition(slot), hash);
+            buffer.putInt(getSlotPosition(slot) + 4, buffer.position());
+            buffer.putShort((short) alias.length).put(alias).putInt(entry.getValue().length).put(entry.getValue());
+        }
+        buffer.flip();
+
+        Path tempPath = null;
+        try {
+            Path absolutePath = path.toAbsolutePath();
+            tempPath = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to write indexed secrets file : " + path, e);
+        } finally {
+            try {
+                if (tempPath != null) {
+                    Files.deleteIfExists(tempPath);
+                }
+            } catch (IOException ignored) {
+                // A temporary file which cannot be deleted is left behind, since it holds cipher texts only
+            }
+        }
+    }
+
+    /**
+     * Get the cipher text of the given alias.
+     *
+     * @param alias alias of the secret
+     * @return cipher text of the secret, or null if there is no secret with the given alias
+     * @throws SecureVaultException if the index points outside of the file
+     */
+    byte[] getCipherText(String alias) throws SecureVaultException {
+        int hash = hash(alias);
+        byte[] aliasBytes = null;
+        int slot = hash & (slotCount - 1);
+        for (int probe = 0; probe < slotCount; probe++, slot = (slot + 1) & (slotCount - 1)) {
+            int offset = buffer.getInt(getSlotPosition(slot) + 4);
+            if (offset == 0) {
+                return null;
+            }
+            if (buffer.getInt(getSlotPosition(slot)) != hash) {
+                continue;
+            }
+            if (aliasBytes == null) {
+                aliasBytes = alias.getBytes(StandardCharsets.UTF_8);
+            }
+            ByteBuffer record = getRecord(offset);
+            int aliasLength = record.getShort() & 0xFFFF;
+            if (aliasLength == aliasBytes.length && matches(record, aliasBytes)) {
+                int cipherTextLength = record.getInt();
+                if (cipherTextLength < 0 || cipherTextLength > record.remaining()) {
+                    throw new SecureVaultException("Indexed secrets file is corrupted at the secret : " + alias);
+                }
+                byte[] cipherText = new byte[cipherTextLength];
+                record.get(cipherText);
+                return cipherText;
+            }
+        }
+        return null;
+    }
+
+    int getSecretCount() {
+        return secretCount;
+    }
+
+    private ByteBuffer getRecord(int offset) throws SecureVaultException {
+        int recordsStart = HEADER_LENGTH + slotCount * SLOT_LENGTH;
+        if (offset < recordsStart || offset > buffer.capacity() - 2 - 4) {
+            throw new SecureVaultException("Indexed secrets file has an invalid record offset : " + offset);
+        }
+        // A duplicate has its own position, hence concurrent lookups do not interfere
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+        return record;
+    }
+
+    private static boolean matches(ByteBuffer record, byte[] aliasBytes) throws SecureVaultException {
+        if (record.remaining() < aliasBytes.length + 4) {
+            throw new SecureVaultException("Indexed secrets file has a truncated record");
+        }
+        for (byte aliasByte : aliasBytes) {
+            if (record.get() != aliasByte) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int getSlotPosition(int slot) {
+        return HEADER_LENGTH + slot * SLOT_LENGTH;
+    }
+
+    private static int hash(String alias) {
+        int hash = alias.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
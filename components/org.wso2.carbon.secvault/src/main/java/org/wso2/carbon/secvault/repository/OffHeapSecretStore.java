@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Collection;
+
+/**
+ * Holds the plain texts of a set of {@link SecretEntry} instances in a single slab of direct memory, so that they are
+ * neither copied around by the garbage collector nor part of a heap dump. Each entry keeps a view of its own region
+ * of the slab, and plain texts are only copied back to the heap when they are resolved.
+ *
+ * @since 5.0.23
+ */
+final class OffHeapSecretStore {
+    private final CharBuffer slab;
+
+    private OffHeapSecretStore(CharBuffer slab) {
+        this.slab = slab;
+    }
+
+    /**
+     * Move the decrypted plain texts of the given entries to a new off-heap store.
+     *
+     * @param secretEntries entries to move, which must not be loaded or wiped concurrently
+     * @return off-heap store holding the plain texts
+     */
+    static OffHeapSecretStore store(Collection<SecretEntry> secretEntries) {
+        long length = 0;
+        for (SecretEntry secretEntry : secretEntries) {
+            length += secretEntry.getPlainTextLength();
+        }
+        if (length > Integer.MAX_VALUE / Character.BYTES) {
+            throw new IllegalStateException("Secrets are too large to be stored off-heap : " + length);
+        }
+        CharBuffer slab = ByteBuffer.allocateDirect((int) length * Character.BYTES).asCharBuffer();
+        int offset = 0;
+        for (SecretEntry secretEntry : secretEntries) {
+            offset += secretEntry.moveOffHeap(slab, offset);
+        }
+        return new OffHeapSecretStore(slab);
+    }
+
+    /**
+     * Overwrite the whole slab, once no entry refers to it anymore.
+     */
+    void wipe() {
+        for (int i = 0; i < slab.capacity(); i++) {
+            slab.put(i, '\0');
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounds the decrypted plain texts retained by the cipher text entries of an {@link AbstractSecretRepository}.
+ * <p>
+ * Decrypted entries are evicted in least recently used order once there are more than the maximum number of them,
+ * and once they have not been used for the expiry time, by the next read or by a background sweep, whichever comes
+ * first. An evicted entry wipes its plain text, and is decrypted again on its next use. Entries created with their
+ * plain text are not cached, since they are held in plain text anyway.
+ *
+ * @since 5.0.23
+ */
+final class SecretCache {
+    private static final String SWEEPER_THREAD_NAME = "SecureVault-SecretCacheSweeper";
+    private final int maxEntries;
+    private final long expiryMillis;
+    private final long expiryNanos;
+    // Last access time of each decrypted entry, in access order, guarded by this
+    private final LinkedHashMap<SecretEntry, Long> accessTimes = new LinkedHashMap<>(16, 0.75f, true);
+    // Evicts expired entries which are not read again, guarded by this
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a secret cache.
+     *
+     * @param maxEntries   maximum number of decrypted entries to retain
+     * @param expiryMillis time after its last use at which a decrypted entry is evicted, or 0 to never expire
+     */
+    SecretCache(int maxEntries, long expiryMillis) {
+        this.maxEntries = maxEntries;
+        this.expiryMillis = expiryMillis;
+        this.expiryNanos = expiryMillis == 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(expiryMillis);
+    }
+
+    /**
+     * Read the given entry through this cache, which records the access and evicts entries as required.
+     *
+     * @param secretEntry entry to read
+     * @param reader      function which reads the plain text of the entry, decrypting it if it is not cached
+     * @param <T>         type of the result of the reader
+     * @return result of the reader
+     */
+    <T> T read(SecretEntry secretEntry, Function<SecretEntry, T> reader) {
+        if (!secretEntry.isEncrypted()) {
+            return reader.apply(secretEntry);
+        }
+        evictExpiredEntries();
+
+        T result = reader.apply(secretEntry);
+        List<SecretEntry> evictedEntries = new ArrayList<>();
+        synchronized (this) {
+            // The entry may have been evicted by another thread since it was read, in which case it is not cached
+            if (secretEntry.isDecrypted()) {
+                accessTimes.put(secretEntry, System.nanoTime());
+            }
+            Iterator<SecretEntry> iterator = accessTimes.keySet().iterator();
+            while (accessTimes.size() > maxEntries) {
+                evictedEntries.add(iterator.next());
+                iterator.remove();
+            }
+            if (sweeper == null && expiryNanos != Long.MAX_VALUE) {
+                startSweeper();
+            }
+        }
+        evict(evictedEntries);
+        return result;
+    }
+
+    /**
+     * Stop tracking the given entry, once it is no longer part of the repository.
+     *
+     * @param secretEntry entry to remove
+     */
+    synchronized void remove(SecretEntry secretEntry) {
+        accessTimes.remove(secretEntry);
+    }
+
+    /**
+     * Stop evicting expired entries in the background, once the entries of the repository are wiped. Eviction is
+     * started again by the next read.
+     */
+    synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+        accessTimes.clear();
+    }
+
+    /**
+     * Evict the entries which have not been used for the expiry time.
+     */
+    private void evictExpiredEntries() {
+        long now = System.nanoTime();
+        List<SecretEntry> evictedEntries = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<SecretEntry, Long>> iterator = accessTimes.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<SecretEntry, Long> accessTime = iterator.next();
+                if (now - accessTime.getValue() < expiryNanos) {
+                    break;
+                }
+                evictedEntries.add(accessTime.getKey());
+                iterator.remove();
+            }
+        }
+        evict(evictedEntries);
+    }
+
+    /**
+     * Evict the given entries, which have been removed from this cache. Entries are evicted outside of the cache
+     * lock, since an entry may be held locked by a reader which resolves another secret meanwhile. An entry which has
+     * been read again since it was removed is tracked again, and is not evicted.
+     */
+    private void evict(List<SecretEntry> evictedEntries) {
+        for (SecretEntry evictedEntry : evictedEntries) {
+            evictedEntry.evict(() -> isUntracked(evictedEntry));
+        }
+    }
+
+    private synchronized boolean isUntracked(SecretEntry secretEntry) {
+        return !accessTimes.containsKey(secretEntry);
+    }
+
+    private void startSweeper() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread sweeperThread = new Thread(runnable, SWEEPER_THREAD_NAME);
+            sweeperThread.setDaemon(true);
+            return sweeperThread;
+        });
+        // An unused entry is evicted at most half of the expiry time after it expires
+        long sweepIntervalMillis = Math.max(1, expiryMillis / 2);
+        sweeper.scheduleWithFixedDelay(this::evictExpiredEntries, sweepIntervalMillis, sweepIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.SecretRepository;
+import org.wso2.carbon.secvault.SecureVaultMetrics;
+import org.wso2.carbon.secvault.SecureVaultUtils;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.internal.SecureVaultDataHolder;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * A secret held by {@link AbstractSecretRepository}. An entry is either created with its plain text, or with its
+ * cipher text which is then decrypted on first use and retained until the entry is evicted. The plain text is held
+ * on the heap, unless it has been moved to an {@link OffHeapSecretStore}. Once an entry is no longer in use its plain
+ * text is wiped.
+ *
+ * @since 5.0.23
+ */
+final class SecretEntry {
+    static final char[] EMPTY_PLAIN_TEXT = new char[0];
+    // Returned by withPlainText instead of invoking the function, if the entry has been wiped
+    static final Object WIPED = new Object();
+    private static Logger logger = LoggerFactory.getLogger(SecretEntry.class);
+    private final String alias;
+    private final byte[] cipherText;
+    // Only written while holding the write lock, and read optimistically so that readers are not blocked
+    private volatile char[] plainText;
+    private volatile CharBuffer offHeapPlainText;
+    private boolean wiped;
+    private final StampedLock lock = new StampedLock();
+
+    private SecretEntry(String alias, byte[] cipherText, char[] plainText) {
+        this.alias = alias;
+        this.cipherText = cipherText;
+        this.plainText = plainText;
+    }
+
+    static SecretEntry ofPlainText(String alias, char[] plainText) {
+        return new SecretEntry(alias, null, plainText);
+    }
+
+    static SecretEntry ofCipherText(String alias, byte[] cipherText) {
+        return new SecretEntry(alias, cipherText, null);
+    }
+
+    boolean isEncrypted() {
+        return cipherText != null;
+    }
+
+    /**
+     * Decrypt the cipher text of this secret with the given repository, unless it is already decrypted. A secret
+     * which cannot be decrypted resolves to an empty array, in the same way as a secret which failed at load time.
+     *
+     * @param secretRepository repository to decrypt the cipher text with
+     */
+    void decrypt(SecretRepository secretRepository) {
+        if (isDecrypted()) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            decryptIfRequired(secretRepository);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get a copy of the plain text of this secret, decrypting it with the given repository if required. The copy is
+     * owned by the caller, and is not affected by a later wipe or eviction of this entry.
+     *
+     * @param secretRepository repository to decrypt the cipher text with
+     * @return copy of the plain text of the secret, which is empty if the entry has been wiped
+     */
+    char[] copyPlainText(SecretRepository secretRepository) {
+        long stamp = lock.tryOptimisticRead();
+        char[] secret = copyDecryptedPlainText();
+        if (secret != null) {
+            if (lock.validate(stamp)) {
+                return secret;
+            }
+            Arrays.fill(secret, '\0');
+        }
+        stamp = lock.writeLock();
+        try {
+            decryptIfRequired(secretRepository);
+            return copyDecryptedPlainText();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Copy the plain text of this secret into the given array, decrypting it with the given repository if required.
+     *
+     * @param secretRepository repository to decrypt the cipher text with
+     * @param destination      array to copy the plain text to
+     * @return length of the plain text, which is only copied if it fits in the destination array
+     */
+    int copyPlainTextInto(SecretRepository secretRepository, char[] destination) {
+        while (true) {
+            long stamp = lock.readLock();
+            try {
+                CharBuffer offHeapSecret = offHeapPlainText;
+                if (offHeapSecret != null) {
+                    int length = offHeapSecret.capacity();
+                    if (length <= destination.length) {
+                        for (int i = 0; i < length; i++) {
+                            destination[i] = offHeapSecret.get(i);
+                        }
+                    }
+                    return length;
+                }
+                char[] secret = plainText;
+                if (secret != null) {
+                    if (secret.length <= destination.length) {
+                        System.arraycopy(secret, 0, destination, 0, secret.length);
+                    }
+                    return secret.length;
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            decrypt(secretRepository);
+        }
+    }
+
+    /**
+     * Apply the given function to a read-only view of the plain text of this secret, decrypting it with the given
+     * repository if required. The entry cannot be wiped or evicted while the function runs, and the view must not be
+     * used after the function returns.
+     *
+     * @param secretRepository repository to decrypt the cipher text with
+     * @param function         function to apply
+     * @return result of the function, or {@link #WIPED} without applying the function if the entry has been wiped
+     */
+    Object withPlainText(SecretRepository secretRepository, Function<CharBuffer, ?> function) {
+        while (true) {
+            long stamp = lock.readLock();
+            try {
+                if (wiped) {
+                    return WIPED;
+                }
+                CharBuffer offHeapSecret = offHeapPlainText;
+                if (offHeapSecret != null) {
+                    return function.apply(offHeapSecret.asReadOnlyBuffer());
+                }
+                char[] secret = plainText;
+                if (secret != null) {
+                    return function.apply(CharBuffer.wrap(secret).asReadOnlyBuffer());
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            decrypt(secretRepository);
+        }
+    }
+
+    /**
+     * Get the length of the decrypted plain text of this entry.
+     *
+     * @return length of the plain text, or 0 if it is not decrypted
+     */
+    int getPlainTextLength() {
+        long stamp = lock.readLock();
+        try {
+            CharBuffer offHeapSecret = offHeapPlainText;
+            if (offHeapSecret != null) {
+                return offHeapSecret.capacity();
+            }
+            char[] secret = plainText;
+            return secret == null ? 0 : secret.length;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Move the decrypted plain text of this entry to the given off-heap slab, wiping the previous copy.
+     *
+     * @param slab   slab to move the plain text to
+     * @param offset offset in the slab to write the plain text at
+     * @return number of characters written to the slab
+     */
+    int moveOffHeap(CharBuffer slab, int offset) {
+        long stamp = lock.writeLock();
+        try {
+            CharBuffer offHeapSecret = offHeapPlainText;
+            char[] secret = plainText;
+            int length = offHeapSecret != null ? offHeapSecret.capacity() : secret == null ? 0 : secret.length;
+            if (length == 0) {
+                return 0;
+            }
+            CharBuffer region = slab.duplicate();
+            region.position(offset).limit(offset + length);
+            region = region.slice();
+            for (int i = 0; i < length; i++) {
+                region.put(i, offHeapSecret != null ? offHeapSecret.get(i) : secret[i]);
+            }
+            fillPlainText();
+            plainText = null;
+            offHeapPlainText = region;
+            return length;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Check whether the given entry was loaded from the same secret as this entry, in which case this entry can be
+     * reused in its place without decrypting again.
+     *
+     * @param secretEntry entry to compare with
+     * @return true if both entries hold the same cipher text, or the same plain text
+     */
+    boolean isSameSecret(SecretEntry secretEntry) {
+        if (cipherText != null || secretEntry.cipherText != null) {
+            return Arrays.equals(cipherText, secretEntry.cipherText);
+        }
+        CharBuffer offHeapSecret = offHeapPlainText;
+        if (offHeapSecret != null) {
+            return secretEntry.plainText != null && offHeapSecret.equals(CharBuffer.wrap(secretEntry.plainText));
+        }
+        return Arrays.equals(plainText, secretEntry.plainText);
+    }
+
+    /**
+     * Overwrite the decrypted plain text of this entry, which is decrypted again on its next use. Entries created
+     * with their plain text are not affected.
+     *
+     * @param condition condition which is checked while no plain text of this entry is being read, and which must
+     *                  hold for the entry to be evicted
+     */
+    void evict(BooleanSupplier condition) {
+        if (cipherText == null) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (!wiped && condition.getAsBoolean()) {
+                fillPlainText();
+                plainText = null;
+                offHeapPlainText = null;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Overwrite the plain text of this entry, after which it resolves to an empty array.
+     */
+    void wipe() {
+        long stamp = lock.writeLock();
+        try {
+            fillPlainText();
+            plainText = EMPTY_PLAIN_TEXT;
+            offHeapPlainText = null;
+            wiped = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    boolean isDecrypted() {
+        return plainText != null || offHeapPlainText != null;
+    }
+
+    private char[] copyDecryptedPlainText() {
+        CharBuffer offHeapSecret = offHeapPlainText;
+        if (offHeapSecret != null) {
+            char[] secret = new char[offHeapSecret.capacity()];
+            for (int i = 0; i < secret.length; i++) {
+                secret[i] = offHeapSecret.get(i);
+            }
+            return secret;
+        }
+        char[] secret = plainText;
+        return secret == null ? null : secret.clone();
+    }
+
+    private void decryptIfRequired(SecretRepository secretRepository) {
+        if (isDecrypted()) {
+            return;
+        }
+        SecureVaultMetrics metrics = SecureVaultDataHolder.getInstance().getSecureVaultMetrics();
+        long startTime = System.nanoTime();
+        try {
+            plainText = SecureVaultUtils.toChars(secretRepository.decrypt(cipherText));
+            metrics.recordSecretDecryption(System.nanoTime() - startTime);
+        } catch (SecureVaultException e) {
+            logger.error("Failed to decrypt the secret at key : " + alias, e);
+            metrics.recordError(SecureVaultMetrics.Operation.SECRET_DECRYPTION);
+            plainText = EMPTY_PLAIN_TEXT;
+        }
+    }
+
+    private void fillPlainText() {
+        char[] secret = plainText;
+        if (secret != null) {
+            Arrays.fill(secret, '\0');
+        }
+        CharBuffer offHeapSecret = offHeapPlainText;
+        if (offHeapSecret != null) {
+            for (int i = 0; i < offHeapSecret.capacity(); i++) {
+                offHeapSecret.put(i, '\0');
+            }
+        }
+    }
+}
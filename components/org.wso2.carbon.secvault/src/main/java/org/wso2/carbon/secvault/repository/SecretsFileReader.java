@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.PlaceholderResolver;
+import org.wso2.carbon.secvault.SecureVaultConstants;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * This class reads the lines of a secrets file one at a time, without loading the whole file. Lines are read in the
+ * format of {@link java.util.Properties#load(java.io.Reader)}, hence comments, continuation lines and escapes are
+ * supported. The value of an entry is made of its <code>cipherText</code> or <code>plainText</code> prefix and the
+ * secret, separated by a single space.
+ * <p>
+ * The text of each line can be kept as it is in the file, including its line terminators, so that the file can be
+ * written back with only some of its lines replaced.
+ *
+ * @since 5.0.23
+ */
+final class SecretsFileReader implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SecretsFileReader.class);
+    private static final int BUFFER_LENGTH = 8192;
+
+    private final Reader reader;
+    private final boolean keepRawText;
+    private final char[] buffer = new char[BUFFER_LENGTH];
+    private int position;
+    private int limit;
+    private final StringBuilder physicalLine = new StringBuilder();
+    private final StringBuilder rawText = new StringBuilder();
+    private String lineTerminator;
+    // Logical line of the current entry without its leading whitespace, or null if the line is not an entry
+    private String line;
+    private int indent;
+    private int keyEnd;
+    private int valueStart;
+
+    /**
+     * Create a reader of the lines of a secrets file.
+     *
+     * @param reader      reader of the secrets file, which is closed with this reader
+     * @param keepRawText whether to keep the text of each line as it is in the file
+     */
+    SecretsFileReader(Reader reader, boolean keepRawText) {
+        this.reader = reader;
+        this.keepRawText = keepRawText;
+    }
+
+    /**
+     * Consumer of the entries of a secrets file.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+
+        /**
+         * Consume an entry of the secrets file.
+         *
+         * @param key        alias of the secret
+         * @param cipherText whether the secret is a base64 encoded cipher text, rather than a plain text
+         * @param secret     secret with its placeholders resolved
+         * @throws SecureVaultException on an error while consuming the entry, which stops reading the file
+         */
+        void accept(String key, boolean cipherText, String secret) throws SecureVaultException;
+    }
+
+    /**
+     * Read the entries of the given secrets file. Placeholders are resolved in the key and the secret of each entry,
+     * without caching the templates of the entries, and invalid entries are logged and skipped.
+     *
+     * @param secretsFilePath     secrets file to read
+     * @param placeholderResolver resolver of the placeholders in the entries
+     * @param consumer            consumer of the valid entries, in the order of the file
+     * @return number of valid entries
+     * @throws SecureVaultException on an error while reading the file, resolving a placeholder or consuming an entry
+     */
+    static int read(Path secretsFilePath, PlaceholderResolver placeholderResolver, EntryConsumer consumer)
+            throws SecureVaultException {
+        PlaceholderResolver entryResolver = placeholderResolver.withoutTemplateCache();
+        int count = 0;
+        try (SecretsFileReader secretsFileReader = new SecretsFileReader(
+                new InputStreamReader(Files.newInputStream(secretsFilePath), StandardCharsets.UTF_8), false)) {
+            while (secretsFileReader.next()) {
+                if (!secretsFileReader.isEntry()) {
+                    continue;
+                }
+                String key = entryResolver.resolve(secretsFileReader.getKey());
+                String value = secretsFileReader.getValue();
+                String secretType = getSecretType(key, value);
+                if (secretType != null) {
+                    consumer.accept(key, SecureVaultConstants.CIPHER_TEXT.equals(secretType),
+                            entryResolver.resolve(value.substring(secretType.length() + 1)));
+                    count++;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            throw new SecureVaultException("Cannot find secrets file in given location. (location: "
+                    + secretsFilePath + ")", e);
+        } catch (IOException e) {
+            throw new SecureVaultException("Cannot access secrets file in given location. (location: "
+                    + secretsFilePath + ")", e);
+        }
+        return count;
+    }
+
+    /**
+     * Get the prefix of the given value of an entry, which is either {@link SecureVaultConstants#CIPHER_TEXT} or
+     * {@link SecureVaultConstants#PLAIN_TEXT}. The secret follows the prefix after a single space.
+     *
+     * @param key   key of the entry, to report an invalid entry with
+     * @param value value of the entry
+     * @return prefix of the value, or null if the entry is invalid, which is logged
+     */
+    static String getSecretType(String key, String value) {
+        int separator = value.indexOf(' ');
+        if (separator < 0 || value.indexOf(' ', separator + 1) >= 0) {
+            logger.error("Secret properties file contains an invalid entry at key : {}", key);
+            return null;
+        }
+        if (separator == SecureVaultConstants.CIPHER_TEXT.length() &&
+                value.startsWith(SecureVaultConstants.CIPHER_TEXT)) {
+            return SecureVaultConstants.CIPHER_TEXT;
+        } else if (separator == SecureVaultConstants.PLAIN_TEXT.length() &&
+                value.startsWith(SecureVaultConstants.PLAIN_TEXT)) {
+            return SecureVaultConstants.PLAIN_TEXT;
+        }
+        logger.error("Unknown prefix in secrets file");
+        return null;
+    }
+
+    /**
+     * Read the next line of the file, which is either an entry, or a comment or blank line. An entry which is
+     * continued over several lines of the file is read as one line.
+     *
+     * @return false if the end of the file is reached
+     * @throws IOException on an error while reading the file
+     */
+    boolean next() throws IOException {
+        rawText.setLength(0);
+        line = null;
+        String firstLine = readPhysicalLine();
+        if (firstLine == null) {
+            return false;
+        }
+        indent = skipWhitespace(firstLine, 0);
+        if (indent == firstLine.length() || firstLine.charAt(indent) == '#' || firstLine.charAt(indent) == '!') {
+            return true;
+        }
+        String logicalLine = indent == 0 ? firstLine : firstLine.substring(indent);
+        if (isContinued(logicalLine)) {
+            StringBuilder builder = new StringBuilder(logicalLine.length() * 2);
+            String current = logicalLine;
+            while (current != null && isContinued(current)) {
+                builder.append(current, 0, current.length() - 1);
+                current = readPhysicalLine();
+                if (current != null) {
+                    current = current.substring(skipWhitespace(current, 0));
+                }
+            }
+            if (current != null) {
+                builder.append(current);
+            }
+            logicalLine = builder.toString();
+        }
+
+        int index = 0;
+        while (index < logicalLine.length()) {
+            char current = logicalLine.charAt(index);
+            if (current == '\\') {
+                index += 2;
+                continue;
+            }
+            if (current == '=' || current == ':' || isWhitespace(current)) {
+                break;
+            }
+            index++;
+        }
+        keyEnd = Math.min(index, logicalLine.length());
+        valueStart = skipWhitespace(logicalLine, keyEnd);
+        if (valueStart < logicalLine.length() &&
+                (logicalLine.charAt(valueStart) == '=' || logicalLine.charAt(valueStart) == ':')) {
+            valueStart = skipWhitespace(logicalLine, valueStart + 1);
+        }
+        line = logicalLine;
+        return true;
+    }
+
+    /**
+     * Check whether the current line is an entry, rather than a comment or blank line.
+     *
+     * @return true if the current line is an entry
+     */
+    boolean isEntry() {
+        return line != null;
+    }
+
+    /**
+     * Get the key of the current entry, with its escapes replaced.
+     *
+     * @return key of the current entry
+     * @throws SecureVaultException if the key has a malformed escape
+     */
+    String getKey() throws SecureVaultException {
+        return unescape(line, 0, keyEnd).trim();
+    }
+
+    /**
+     * Get the value of the current entry, with its escapes replaced.
+     *
+     * @return value of the current entry
+     * @throws SecureVaultException if the value has a malformed escape
+     */
+    String getValue() throws SecureVaultException {
+        return unescape(line, valueStart, line.length()).trim();
+    }
+
+    /**
+     * Get the text of the current entry before its value, which is the indentation, key and separator as they are in
+     * the file. A replacement value can be appended to this to replace the entry.
+     *
+     * @return text of the current entry before its value
+     */
+    String getEntryPrefix() {
+        return rawText.substring(0, indent) + line.substring(0, valueStart);
+    }
+
+    /**
+     * Get the text of the current line as it is in the file, including its line terminators. This is only available
+     * if the raw text is kept.
+     *
+     * @return text of the current line
+     */
+    String getRawText() {
+        return rawText.toString();
+    }
+
+    /**
+     * Get the terminator of the last line of the file read, which is empty if the file ends without one.
+     *
+     * @return line terminator
+     */
+    String getLineTerminator() {
+        return lineTerminator;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Read the next line of the file, without its line terminator.
+     *
+     * @return line of the file, or null if the end of the file is reached
+     */
+    private String readPhysicalLine() throws IOException {
+        physicalLine.setLength(0);
+        boolean read = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                lineTerminator = "";
+                break;
+            }
+            read = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                position++;
+            }
+            physicalLine.append(buffer, start, position - start);
+            if (position == limit) {
+                continue;
+            }
+            if (buffer[position++] == '\n') {
+                lineTerminator = "\n";
+            } else if ((position < limit || fill()) && buffer[position] == '\n') {
+                position++;
+                lineTerminator = "\r\n";
+            } else {
+                lineTerminator = "\r";
+            }
+            break;
+        }
+        if (!read) {
+            return null;
+        }
+        if (keepRawText) {
+            rawText.append(physicalLine).append(lineTerminator);
+        }
+        return physicalLine.toString();
+    }
+
+    private boolean fill() throws IOException {
+        int length;
+        do {
+            length = reader.read(buffer, 0, buffer.length);
+        } while (length == 0);
+        position = 0;
+        limit = Math.max(length, 0);
+        return length > 0;
+    }
+
+    /**
+     * Check whether the given line ends with an odd number of backslashes, which continues it on the next line.
+     */
+    private static boolean isContinued(String line) {
+        int backslashes = 0;
+        for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return (backslashes & 1) == 1;
+    }
+
+    /**
+     * Replace the escape sequences in the given region of the line, which is returned as it is if it has none.
+     */
+    private static String unescape(String line, int start, int end) throws SecureVaultException {
+        int escape = line.indexOf('\\', start);
+        if (escape < 0 || escape >= end) {
+            return line.substring(start, end);
+        }
+        StringBuilder builder = new StringBuilder(end - start);
+        builder.append(line, start, escape);
+        int index = escape;
+        while (index < end) {
+            char current = line.charAt(index++);
+            if (current != '\\' || index == end) {
+                builder.append(current);
+                continue;
+            }
+            current = line.charAt(index++);
+            switch (current) {
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'u':
+                    if (index + 4 > end) {
+                        throw new SecureVaultException("Malformed \\uxxxx encoding in secrets file");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(line.substring(index, index + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new SecureVaultException("Malformed \\uxxxx encoding in secrets file", e);
+                    }
+                    index += 4;
+                    break;
+                default:
+                    builder.append(current);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int skipWhitespace(String line, int start) {
+        int index = start;
+        while (index < line.length() && isWhitespace(line.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isWhitespace(char character) {
+        return character == ' ' || character == '\t' || character == '\f';
+    }
+}
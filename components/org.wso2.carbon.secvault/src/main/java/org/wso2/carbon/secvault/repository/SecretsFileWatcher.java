@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a secrets file and triggers a reload once it has changed. Change events are debounced, so that a file
+ * which is written in several steps is reloaded once, after it has been quiet for the configured time. Only changes
+ * of the secrets file restart the quiet time, hence changes of other files in its directory do not delay a reload.
+ * <p>
+ * The reload runs on the watcher thread, hence resolving secrets is never blocked by it.
+ *
+ * @since 5.0.23
+ */
+final class SecretsFileWatcher {
+    private static Logger logger = LoggerFactory.getLogger(SecretsFileWatcher.class);
+    private static final String THREAD_NAME = "SecureVaultSecretsFileWatcher";
+    private final Path secretsFilePath;
+    private final long debounceMillis;
+    private final ReloadAction reloadAction;
+    private WatchService watchService;
+
+    SecretsFileWatcher(Path secretsFilePath, long debounceMillis, ReloadAction reloadAction) {
+        this.secretsFilePath = secretsFilePath.toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.reloadAction = reloadAction;
+    }
+
+    /**
+     * Start watching the secrets file on a daemon thread.
+     *
+     * @throws SecureVaultException if the directory of the secrets file cannot be watched
+     */
+    void start() throws SecureVaultException {
+        Path directory = secretsFilePath.getParent();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            // Watch the directory, since editors often replace a file instead of modifying it in place
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new SecureVaultException("Failed to watch secrets file : " + secretsFilePath, e);
+        }
+        Thread watcherThread = new Thread(this::watch, THREAD_NAME);
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.debug("Watching secrets file : '{}'", secretsFilePath);
+    }
+
+    /**
+     * Stop watching the secrets file. A reload which is already in progress is allowed to complete.
+     */
+    void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.error("Failed to stop watching secrets file : " + secretsFilePath, e);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!isSecretsFileChanged(watchService.take())) {
+                    continue;
+                }
+                long debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+                long quietDeadline = System.nanoTime() + debounceNanos;
+                long remainingNanos;
+                while ((remainingNanos = quietDeadline - System.nanoTime()) > 0) {
+                    WatchKey watchKey = watchService.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (watchKey != null && isSecretsFileChanged(watchKey)) {
+                        quietDeadline = System.nanoTime() + debounceNanos;
+                    }
+                }
+                reload();
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Stopped watching secrets file : '{}'", secretsFilePath);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isSecretsFileChanged(WatchKey watchKey) {
+        boolean changed = false;
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                    secretsFilePath.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        watchKey.reset();
+        return changed;
+    }
+
+    private void reload() {
+        logger.debug("Reloading changed secrets file : '{}'", secretsFilePath);
+        try {
+            reloadAction.reload();
+        } catch (SecureVaultException | RuntimeException e) {
+            logger.error("Failed to reload secrets file : " + secretsFilePath + ", previous secrets are retained", e);
+        }
+    }
+
+    /**
+     * Reloads the secrets once the secrets file has changed.
+     */
+    @FunctionalInterface
+    interface ReloadAction {
+        void reload() throws SecureVaultException;
+    }
+}
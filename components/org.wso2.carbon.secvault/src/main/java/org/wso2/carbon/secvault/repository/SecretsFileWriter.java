@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.secvault.repository;
+
+import org.wso2.carbon.secvault.SecretRepository;
+import org.wso2.carbon.secvault.SecureVaultConstants;
+import org.wso2.carbon.secvault.SecureVaultUtils;
+import org.wso2.carbon.secvault.exception.SecureVaultException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * This class encrypts the plain text secrets of a secrets file. The file is read line by line, and only the lines of
+ * plain text secrets are replaced, hence comments, the order of the entries and the other lines are retained as they
+ * are. The updated file is written to a new temporary file next to the secrets file, which is created with the
+ * permissions of the secrets file before anything is written to it, and is then moved in place, so that the secrets
+ * file is replaced as a whole, and the secrets file is not touched at all if it has no plain text secrets.
+ * <p>
+ * A lock is held on a lock file next to the secrets file while it is updated, so that concurrent updates of the
+ * secrets file, such as by several cipher tool runs, are applied one after the other.
+ *
+ * @since 5.0.23
+ */
+final class SecretsFileWriter {
+    private static final String LOCK_FILE_EXTENSION = ".lock";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+    // A file lock is held by the whole JVM, hence updates within the JVM are serialized separately
+    private static final Object updateLock = new Object();
+
+    private SecretsFileWriter() {
+    }
+
+    /**
+     * Encrypt the plain text secrets of the given secrets file with the given secret repository.
+     *
+     * @param secretsFilePath  secrets file to update
+     * @param secretRepository secret repository to encrypt the plain text secrets with
+     * @return number of encrypted secrets
+     * @throws SecureVaultException on an error while reading, encrypting or writing the secrets
+     */
+    static int encryptPlainTexts(Path secretsFilePath, SecretRepository secretRepository)
+            throws SecureVaultException {
+        Path lockFilePath = secretsFilePath.resolveSibling(secretsFilePath.getFileName() + LOCK_FILE_EXTENSION);
+        synchronized (updateLock) {
+            Path tempFilePath = null;
+            try (FileChannel lockChannel = FileChannel.open(lockFilePath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+                tempFilePath = createTempFile(secretsFilePath);
+                int count = writeEncryptedSecretsFile(secretsFilePath, tempFilePath, secretRepository);
+                if (count > 0) {
+                    // The permissions of the temporary file may have been narrowed by the umask
+                    copyPermissions(secretsFilePath, tempFilePath);
+                    try {
+                        Files.move(tempFilePath, secretsFilePath, StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(tempFilePath, secretsFilePath, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                return count;
+            } catch (NoSuchFileException e) {
+                throw new SecureVaultException("Cannot find secrets file in given location. (location: "
+                        + secretsFilePath + ")", e);
+            } catch (IOException e) {
+                throw new SecureVaultException("Cannot access secrets file in given location. (location: "
+                        + secretsFilePath + ")", e);
+            } finally {
+                try {
+                    if (tempFilePath != null) {
+                        Files.deleteIfExists(tempFilePath);
+                    }
+                } catch (IOException ignored) {
+                    // The temporary file is as accessible as the secrets file, hence it is left behind
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the given secrets file to the given temporary file, with its plain text secrets encrypted.
+     *
+     * @return number of encrypted secrets
+     */
+    private static int writeEncryptedSecretsFile(Path secretsFilePath, Path tempFilePath,
+                                                 SecretRepository secretRepository)
+            throws IOException, SecureVaultException {
+        int count = 0;
+        // Malformed input is reported rather than replaced, since the file is written back
+        try (SecretsFileReader reader = new SecretsFileReader(new InputStreamReader(
+                Files.newInputStream(secretsFilePath), StandardCharsets.UTF_8.newDecoder()), true);
+             FileChannel channel = FileChannel.open(tempFilePath, StandardOpenOption.WRITE);
+             Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1)) {
+            while (reader.next()) {
+                if (!reader.isEntry()) {
+                    writer.write(reader.getRawText());
+                    continue;
+                }
+                String key = reader.getKey();
+                String value = reader.getValue();
+                if (!SecureVaultConstants.PLAIN_TEXT.equals(SecretsFileReader.getSecretType(key, value))) {
+                    writer.write(reader.getRawText());
+                    continue;
+                }
+                String plainText = value.substring(SecureVaultConstants.PLAIN_TEXT.length() + 1);
+                byte[] encryptedPassword = SecureVaultUtils.base64Encode(
+                        secretRepository.encrypt(SecureVaultUtils.toBytes(plainText)));
+                writer.write(reader.getEntryPrefix());
+                writer.write(SecureVaultConstants.CIPHER_TEXT);
+                writer.write(SecureVaultConstants.SPACE);
+                writer.write(SecureVaultUtils.toChars(encryptedPassword));
+                writer.write(reader.getLineTerminator());
+                count++;
+            }
+            writer.flush();
+            channel.force(true);
+        }
+        return count;
+    }
+
+    /**
+     * Create an empty temporary file next to the given secrets file, with no more permissions than the secrets file
+     * where POSIX permissions are supported, and with the default permissions of a temporary file otherwise.
+     */
+    private static Path createTempFile(Path secretsFilePath) throws IOException {
+        Path absolutePath = secretsFilePath.toAbsolutePath();
+        Path directory = absolutePath.getParent();
+        String prefix = absolutePath.getFileName().toString();
+        PosixFileAttributeView attributeView = Files.getFileAttributeView(absolutePath, PosixFileAttributeView.class);
+        if (attributeView == null) {
+            return Files.createTempFile(directory, prefix, TEMP_FILE_EXTENSION);
+        }
+        FileAttribute<Set<PosixFilePermission>> permissions =
+                PosixFilePermissions.asFileAttribute(attributeView.readAttributes().permissions());
+        return Files.createTempFile(directory, prefix, TEMP_FILE_EXTENSION, permissions);
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        PosixFileAttributeView attributeView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (attributeView != null) {
+            Files.setPosixFilePermissions(target, attributeView.readAttributes().permissions());
+        }
+    }
+}
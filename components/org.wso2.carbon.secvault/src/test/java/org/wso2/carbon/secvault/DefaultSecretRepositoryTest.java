@@ -20,19 +20,46 @@ import org.easymock.EasyMock;
 import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
+import org.wso2.carbon.secvault.cipher.JKSBasedCipherProvider;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
 import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
 import org.wso2.carbon.secvault.repository.DefaultSecretRepository;
+import org.wso2.carbon.secvault.repository.IndexedSecretRepository;
 import org.wso2.carbon.secvault.utils.DefaultHardCodedMasterKeyReader;
 import org.wso2.carbon.secvault.utils.TestUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.CharBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
@@ -85,6 +112,7 @@ public class DefaultSecretRepositoryTest {
                         "securevault.jks").toString()));
         expect(secretRepositoryConfiguration.getParameter("privateKeyAlias"))
                 .andReturn(Optional.of("wso2carbon"));
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         MasterKeyReader masterKeyReader = new DefaultHardCodedMasterKeyReader();
@@ -104,6 +132,7 @@ public class DefaultSecretRepositoryTest {
                         "nonExisting", "securevault.jks").toString()));
         expect(secretRepositoryConfiguration.getParameter("privateKeyAlias"))
                 .andReturn(Optional.of("wso2carbon"));
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         MasterKeyReader masterKeyReader = new DefaultHardCodedMasterKeyReader();
@@ -123,6 +152,7 @@ public class DefaultSecretRepositoryTest {
                         "securevault.jks").toString()));
         expect(secretRepositoryConfiguration.getParameter("privateKeyAlias"))
                 .andReturn(Optional.of("nonExistingWso2carbon"));
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         MasterKeyReader masterKeyReader = new DefaultHardCodedMasterKeyReader();
@@ -138,6 +168,148 @@ public class DefaultSecretRepositoryTest {
         Assert.assertEquals(originalPassword, new String(plainText));
     }
 
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testByteBufferEncryptionAndDecryption() throws SecureVaultException {
+        byte[] originalPassword = "ABC123".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer plainText = ByteBuffer.allocateDirect(originalPassword.length);
+        plainText.put(originalPassword).flip();
+
+        ByteBuffer cipherText = ByteBuffer.allocateDirect(512);
+        int cipherTextLength = secretRepository.encrypt(plainText, cipherText);
+        Assert.assertEquals(cipherText.position(), cipherTextLength);
+        Assert.assertFalse(plainText.hasRemaining());
+        cipherText.flip();
+
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(512);
+        int plainTextLength = secretRepository.decrypt(cipherText, decrypted);
+        decrypted.flip();
+        byte[] decryptedBytes = new byte[plainTextLength];
+        decrypted.get(decryptedBytes);
+        Assert.assertEquals(decryptedBytes, originalPassword);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class)
+    public void testByteBufferEncryptionWithSmallOutputBuffer() throws SecureVaultException {
+        ByteBuffer plainText = ByteBuffer.wrap("ABC123".getBytes(StandardCharsets.UTF_8));
+        secretRepository.encrypt(plainText, ByteBuffer.allocate(16));
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testConcurrentDecryption() throws SecureVaultException, InterruptedException, ExecutionException {
+        int secretCount = 16;
+        List<String> originalPasswords = new ArrayList<>();
+        List<byte[]> cipherTexts = new ArrayList<>();
+        for (int i = 0; i < secretCount; i++) {
+            String originalPassword = "Password@" + i;
+            originalPasswords.add(originalPassword);
+            cipherTexts.add(secretRepository.encrypt(originalPassword.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < secretCount * 100; i++) {
+                byte[] cipherText = cipherTexts.get(i % secretCount);
+                results.add(executorService.submit(() ->
+                        new String(secretRepository.decrypt(cipherText), StandardCharsets.UTF_8)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                Assert.assertEquals(results.get(i).get(), originalPasswords.get(i % secretCount));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testEnvelopeEncryptionAndDecryption() throws SecureVaultException {
+        SecretRepository envelopeSecretRepository = createEnvelopeSecretRepository();
+
+        byte[] originalPayload = new byte[64 * 1024];
+        new Random().nextBytes(originalPayload);
+        byte[] cipherText = envelopeSecretRepository.encrypt(originalPayload);
+        Assert.assertEquals(envelopeSecretRepository.decrypt(cipherText), originalPayload);
+        // Envelopes are accepted regardless of the configured encryption mode
+        Assert.assertEquals(secretRepository.decrypt(cipherText), originalPayload);
+
+        ByteBuffer plainText = ByteBuffer.allocateDirect(originalPayload.length);
+        plainText.put(originalPayload).flip();
+        ByteBuffer cipherTextBuffer = ByteBuffer.allocateDirect(originalPayload.length + 1024);
+        envelopeSecretRepository.encrypt(plainText, cipherTextBuffer);
+        cipherTextBuffer.flip();
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(originalPayload.length);
+        int plainTextLength = envelopeSecretRepository.decrypt(cipherTextBuffer, decrypted);
+        Assert.assertEquals(plainTextLength, originalPayload.length);
+        Assert.assertFalse(cipherTextBuffer.hasRemaining());
+        decrypted.flip();
+        byte[] decryptedBytes = new byte[plainTextLength];
+        decrypted.get(decryptedBytes);
+        Assert.assertEquals(decryptedBytes, originalPayload);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testEnvelopeModeDecryptsRsaCipherText() throws SecureVaultException {
+        SecretRepository envelopeSecretRepository = createEnvelopeSecretRepository();
+
+        String originalPassword = "ABC123";
+        byte[] cipherText = secretRepository.encrypt(originalPassword.getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(new String(envelopeSecretRepository.decrypt(cipherText), StandardCharsets.UTF_8),
+                originalPassword);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class)
+    public void testEnvelopeDecryptionOfTamperedCipherText() throws SecureVaultException {
+        SecretRepository envelopeSecretRepository = createEnvelopeSecretRepository();
+
+        byte[] cipherText = envelopeSecretRepository.encrypt("ABC123".getBytes(StandardCharsets.UTF_8));
+        byte[] tamperedCipherText = Arrays.copyOf(cipherText, cipherText.length);
+        tamperedCipherText[tamperedCipherText.length - 1] ^= 1;
+        envelopeSecretRepository.decrypt(tamperedCipherText);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testStreamingEncryptionAndDecryption() throws SecureVaultException {
+        SecretRepository secretRepository = createEnvelopeSecretRepository();
+        Random random = new Random();
+        // Empty, single chunk, exactly one chunk and several chunks with a partial final chunk
+        for (int size : new int[]{0, 100, 64 * 1024, 200 * 1024 + 7}) {
+            byte[] plainText = new byte[size];
+            random.nextBytes(plainText);
+
+            ByteArrayOutputStream cipherText = new ByteArrayOutputStream();
+            long cipherTextLength = secretRepository.encrypt(new ByteArrayInputStream(plainText), cipherText);
+            Assert.assertEquals(cipherTextLength, cipherText.size());
+
+            ByteArrayOutputStream decryptedText = new ByteArrayOutputStream();
+            long plainTextLength = secretRepository.decrypt(new ByteArrayInputStream(cipherText.toByteArray()),
+                    decryptedText);
+            Assert.assertEquals(plainTextLength, size);
+            Assert.assertEquals(decryptedText.toByteArray(), plainText);
+        }
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class)
+    public void testStreamingDecryptionOfTruncatedCipherText() throws SecureVaultException {
+        SecretRepository secretRepository = createEnvelopeSecretRepository();
+        ByteArrayOutputStream cipherText = new ByteArrayOutputStream();
+        secretRepository.encrypt(new ByteArrayInputStream(new byte[150 * 1024]), cipherText);
+
+        // Dropping the final chunk leaves a stream which ends on a complete chunk
+        byte[] truncatedCipherText = Arrays.copyOf(cipherText.toByteArray(), cipherText.size() - (22 * 1024 + 16));
+        secretRepository.decrypt(new ByteArrayInputStream(truncatedCipherText), new ByteArrayOutputStream());
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class)
+    public void testStreamingDecryptionOfTamperedCipherText() throws SecureVaultException {
+        SecretRepository secretRepository = createEnvelopeSecretRepository();
+        ByteArrayOutputStream cipherText = new ByteArrayOutputStream();
+        secretRepository.encrypt(new ByteArrayInputStream("ABC123".getBytes(StandardCharsets.UTF_8)), cipherText);
+
+        byte[] tamperedCipherText = cipherText.toByteArray();
+        tamperedCipherText[tamperedCipherText.length - 1] ^= 1;
+        secretRepository.decrypt(new ByteArrayInputStream(tamperedCipherText), new ByteArrayOutputStream());
+    }
+
     @Test(dependsOnMethods = {"testInitSecretRepository"})
     public void testReadSecrets() throws SecureVaultException {
 
@@ -155,6 +327,7 @@ public class DefaultSecretRepositoryTest {
                 .andReturn(Optional.of("wso2carbon")).anyTimes();
         expect(secretRepositoryConfiguration.getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY))
                 .andReturn(Optional.ofNullable(secretRepositoryPath.toAbsolutePath().toString())).anyTimes();
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         MasterKeyReader masterKeyReader = new DefaultHardCodedMasterKeyReader();
@@ -165,6 +338,483 @@ public class DefaultSecretRepositoryTest {
         Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Hello@123");
     }
 
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testReadSecretsLazily() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("lazy-secrets.properties",
+                "my.pass.1=plainText Hello@123",
+                "my.pass.2=" + encryptToCipherTextEntry("World@123"),
+                "my.pass.3=cipherText SGVsbG9Ad29ybGQ=");
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY,
+                        SecureVaultConstants.DECRYPTION_MODE_LAZY));
+
+        CountingSecretRepository secretRepository = new CountingSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 0);
+
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Hello@123");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 0);
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "World@123");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "World@123");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 1);
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 2);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class,
+            expectedExceptionsMessageRegExp = "Unsupported decryption mode : unknown")
+    public void testReadSecretsWithUnsupportedDecryptionMode() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("mode-secrets.properties", "my.pass.1=plainText Hello@123");
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY,
+                        "unknown"));
+
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testReadSecretsInParallel() throws SecureVaultException {
+        int secretCount = 32;
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < secretCount; i++) {
+            entries.add("my.pass." + i + "=" + encryptToCipherTextEntry("Password@" + i));
+        }
+        entries.add("my.pass.invalid=cipherText SGVsbG9Ad29ybGQ=");
+        Path secretRepositoryPath = createSecretsFile("parallel-secrets.properties", entries.toArray(new String[0]));
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(
+                        SecureVaultConstants.DECRYPTION_PARALLELISM_CONFIG_PROPERTY, "4"));
+
+        CountingSecretRepository secretRepository = new CountingSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(secretRepository.decryptionCount.get(), secretCount + 1);
+
+        for (int i = 0; i < secretCount; i++) {
+            Assert.assertEquals(new String(secretRepository.resolve("my.pass." + i)), "Password@" + i);
+        }
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.invalid")), "");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), secretCount + 1);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class,
+            expectedExceptionsMessageRegExp = "Invalid decryption parallelism : 0")
+    public void testReadSecretsWithInvalidDecryptionParallelism() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("mode-secrets.properties", "my.pass.1=plainText Hello@123");
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(
+                        SecureVaultConstants.DECRYPTION_PARALLELISM_CONFIG_PROPERTY, "0"));
+
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testResolveAll() throws SecureVaultException {
+        int secretCount = 16;
+        List<String> entries = new ArrayList<>();
+        List<String> aliases = new ArrayList<>();
+        for (int i = 0; i < secretCount; i++) {
+            entries.add("my.pass." + i + "=" + encryptToCipherTextEntry("Password@" + i));
+            aliases.add("my.pass." + i);
+        }
+        entries.add("my.pass.plain=plainText Hello@123");
+        Path secretRepositoryPath = createSecretsFile("batch-secrets.properties", entries.toArray(new String[0]));
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY, SecureVaultConstants.DECRYPTION_MODE_LAZY);
+        parameters.put(SecureVaultConstants.DECRYPTION_PARALLELISM_CONFIG_PROPERTY, "4");
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, parameters);
+
+        CountingSecretRepository secretRepository = new CountingSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 0);
+
+        aliases.add("my.pass.plain");
+        aliases.add("my.pass.missing");
+        aliases.add("my.pass.0");
+        Map<String, char[]> secrets = secretRepository.resolveAll(aliases);
+        Assert.assertEquals(new ArrayList<>(secrets.keySet()), aliases.subList(0, secretCount + 2));
+        for (int i = 0; i < secretCount; i++) {
+            Assert.assertEquals(new String(secrets.get("my.pass." + i)), "Password@" + i);
+        }
+        Assert.assertEquals(new String(secrets.get("my.pass.plain")), "Hello@123");
+        Assert.assertEquals(new String(secrets.get("my.pass.missing")), "");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), secretCount);
+
+        secretRepository.resolveAll(aliases);
+        Assert.assertEquals(secretRepository.decryptionCount.get(), secretCount);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testEncryptAndDecryptBatch() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("batch-secrets.properties", "my.pass.1=plainText Hello@123");
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(
+                        SecureVaultConstants.BATCH_PARALLELISM_CONFIG_PROPERTY, "4"));
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+
+        int batchSize = 10;
+        List<byte[]> plainTexts = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            plainTexts.add(("Token@" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        List<CipherResult> encryptionResults = secretRepository.encryptBatch(plainTexts);
+        Assert.assertEquals(encryptionResults.size(), batchSize);
+
+        List<byte[]> cipherTexts = new ArrayList<>();
+        for (CipherResult encryptionResult : encryptionResults) {
+            Assert.assertTrue(encryptionResult.isSuccess());
+            cipherTexts.add(encryptionResult.getOutput());
+        }
+        cipherTexts.set(3, "Hello@world".getBytes(StandardCharsets.UTF_8));
+        List<CipherResult> decryptionResults = secretRepository.decryptBatch(cipherTexts);
+        Assert.assertEquals(decryptionResults.size(), batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            if (i == 3) {
+                Assert.assertFalse(decryptionResults.get(i).isSuccess());
+                Assert.assertTrue(decryptionResults.get(i).getError().isPresent());
+            } else {
+                Assert.assertEquals(new String(decryptionResults.get(i).getOutput(), StandardCharsets.UTF_8),
+                        "Token@" + i);
+            }
+        }
+        Assert.assertTrue(secretRepository.decryptBatch(Collections.emptyList()).isEmpty());
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class)
+    public void testFailedBatchResultOutput() throws SecureVaultException {
+        CipherResult.failure(new SecureVaultException("Failed to decrypt")).getOutput();
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testResolveWhileReloadingSecrets() throws SecureVaultException, InterruptedException,
+            ExecutionException {
+        String[] versions = {encryptToCipherTextEntry("Version@1"), encryptToCipherTextEntry("Version@2")};
+        Path secretRepositoryPath = createSecretsFile("reload-secrets.properties",
+                "my.pass.1=plainText Hello@123", "my.pass.2=" + versions[0]);
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, Collections.emptyMap());
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                readers.add(executorService.submit(() -> {
+                    while (reloading.get()) {
+                        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Hello@123");
+                        Assert.assertTrue(new String(secretRepository.resolve("my.pass.2")).startsWith("Version@"));
+                    }
+                }));
+            }
+            for (int i = 1; i <= 20; i++) {
+                createSecretsFile("reload-secrets.properties",
+                        "my.pass.1=plainText Hello@123", "my.pass.2=" + versions[i % 2]);
+                secretRepository.loadSecrets(secretRepositoryConfiguration);
+            }
+            reloading.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            reloading.set(false);
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Version@1");
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testReloadSecretsOnFileChange() throws SecureVaultException, InterruptedException {
+        Path secretRepositoryPath = createSecretsFile("watched-secrets.properties",
+                "my.pass.1=plainText Hello@123", "my.pass.2=" + encryptToCipherTextEntry("Version@1"));
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(SecureVaultConstants.WATCH_SECRETS_FILE_CONFIG_PROPERTY, "true");
+        parameters.put(SecureVaultConstants.WATCH_DEBOUNCE_CONFIG_PROPERTY, "100");
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, parameters);
+
+        DefaultSecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        try {
+            Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Version@1");
+
+            createSecretsFile("watched-secrets.properties", "my.pass.2=" + encryptToCipherTextEntry("Version@2"));
+            long deadline = System.currentTimeMillis() + 30000;
+            while (!"Version@2".equals(new String(secretRepository.resolve("my.pass.2")))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Version@2");
+            Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "");
+        } finally {
+            secretRepository.stopWatchingSecretsFile();
+        }
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testReloadIsNotDelayedByOtherFiles() throws SecureVaultException, InterruptedException, IOException {
+        Path secretRepositoryPath = createSecretsFile("busy-watched-secrets.properties",
+                "my.pass=" + encryptToCipherTextEntry("Version@1"));
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(SecureVaultConstants.WATCH_SECRETS_FILE_CONFIG_PROPERTY, "true");
+        parameters.put(SecureVaultConstants.WATCH_DEBOUNCE_CONFIG_PROPERTY, "500");
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, parameters);
+
+        DefaultSecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Path otherFilePath = secretRepositoryPath.resolveSibling("busy-watched-secrets.log");
+        otherFilePath.toFile().deleteOnExit();
+        try {
+            createSecretsFile("busy-watched-secrets.properties", "my.pass=" + encryptToCipherTextEntry("Version@2"));
+            // Another file of the directory is written more often than the debounce time, until the reload
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!"Version@2".equals(new String(secretRepository.resolve("my.pass")))
+                    && System.currentTimeMillis() < deadline) {
+                Files.write(otherFilePath, String.valueOf(System.nanoTime()).getBytes(StandardCharsets.UTF_8));
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(new String(secretRepository.resolve("my.pass")), "Version@2");
+        } finally {
+            secretRepository.close();
+        }
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testCloseWhileReloadIsPending() throws SecureVaultException, InterruptedException {
+        Path secretRepositoryPath = createSecretsFile("closed-watched-secrets.properties",
+                "my.pass=" + encryptToCipherTextEntry("Version@1"));
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(SecureVaultConstants.WATCH_SECRETS_FILE_CONFIG_PROPERTY, "true");
+        parameters.put(SecureVaultConstants.WATCH_DEBOUNCE_CONFIG_PROPERTY, "10");
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, parameters);
+
+        DefaultSecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass")), "Version@1");
+
+        // Hold the repository, so that the watcher waits to reload until the repository is closed
+        synchronized (secretRepository) {
+            createSecretsFile("closed-watched-secrets.properties", "my.pass=" + encryptToCipherTextEntry("Version@2"));
+            long deadline = System.currentTimeMillis() + 30000;
+            while (!isWatcherBlocked() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(isWatcherBlocked(), "Watcher is not waiting to reload the secrets");
+            secretRepository.close();
+        }
+        // The watcher stops once its pending reload has returned
+        long deadline = System.currentTimeMillis() + 30000;
+        while (getWatcherThreads().findAny().isPresent() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(secretRepository.resolve("my.pass").length, 0);
+    }
+
+    private static boolean isWatcherBlocked() {
+        return getWatcherThreads().anyMatch(thread -> thread.getState() == Thread.State.BLOCKED);
+    }
+
+    private static Stream<Thread> getWatcherThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> "SecureVaultSecretsFileWatcher".equals(thread.getName()));
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testReloadOnlyDecryptsChangedSecrets() throws SecureVaultException {
+        String unchangedEntry = "my.pass.1=" + encryptToCipherTextEntry("Unchanged@123");
+        Path secretRepositoryPath = createSecretsFile("delta-secrets.properties", unchangedEntry,
+                "my.pass.2=" + encryptToCipherTextEntry("Version@1"),
+                "my.pass.3=" + encryptToCipherTextEntry("Removed@123"));
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, Collections.emptyMap());
+
+        CountingSecretRepository secretRepository = new CountingSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 3);
+
+        createSecretsFile("delta-secrets.properties", unchangedEntry,
+                "my.pass.2=" + encryptToCipherTextEntry("Version@2"),
+                "my.pass.4=" + encryptToCipherTextEntry("Added@123"));
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 5);
+
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Unchanged@123");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Version@2");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.4")), "Added@123");
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testSecretCacheEvictsLeastRecentlyUsedSecrets() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("cached-secrets.properties",
+                "my.pass.1=" + encryptToCipherTextEntry("Password@1"),
+                "my.pass.2=" + encryptToCipherTextEntry("Password@2"),
+                "my.pass.3=" + encryptToCipherTextEntry("Password@3"),
+                "my.pass.4=plainText Password@4");
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(
+                        SecureVaultConstants.SECRET_CACHE_MAX_ENTRIES_CONFIG_PROPERTY, "2"));
+
+        CountingSecretRepository secretRepository = new CountingSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 0);
+
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Password@1");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Password@2");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Password@1");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 2);
+
+        // my.pass.2 is the least recently used secret, hence it is evicted
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "Password@3");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Password@1");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 3);
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Password@2");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 4);
+
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.4")), "Password@4");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 4);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testSecretCacheExpiresUnusedSecrets() throws SecureVaultException, InterruptedException {
+        Path secretRepositoryPath = createSecretsFile("cached-secrets.properties",
+                "my.pass.1=" + encryptToCipherTextEntry("Password@1"));
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(SecureVaultConstants.SECRET_CACHE_MAX_ENTRIES_CONFIG_PROPERTY, "10");
+        parameters.put(SecureVaultConstants.SECRET_CACHE_EXPIRY_CONFIG_PROPERTY, "10");
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, parameters);
+
+        CountingSecretRepository secretRepository = new CountingSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Password@1");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 1);
+        Thread.sleep(50);
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Password@1");
+        Assert.assertEquals(secretRepository.decryptionCount.get(), 2);
+
+        // A secret which is not resolved again is wiped in the background once it expires
+        CharBuffer retainedSecret = secretRepository.withSecret("my.pass.1", secret -> secret);
+        Assert.assertEquals(retainedSecret.toString(), "Password@1");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (retainedSecret.get(0) != '\0' && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(retainedSecret.toString(), "\0\0\0\0\0\0\0\0\0\0");
+        secretRepository.close();
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testOffHeapSecrets() throws SecureVaultException {
+        String unchangedEntry = "my.pass.1=" + encryptToCipherTextEntry("Unchanged@123");
+        Path secretRepositoryPath = createSecretsFile("off-heap-secrets.properties", unchangedEntry,
+                "my.pass.2=" + encryptToCipherTextEntry("Version@1"), "my.pass.3=plainText Hello@123");
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(
+                        SecureVaultConstants.OFF_HEAP_SECRETS_CONFIG_PROPERTY, "true"));
+
+        DefaultSecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Unchanged@123");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Version@1");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "Hello@123");
+
+        createSecretsFile("off-heap-secrets.properties", unchangedEntry,
+                "my.pass.2=" + encryptToCipherTextEntry("Version@2"), "my.pass.3=plainText Hello@123");
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Unchanged@123");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Version@2");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "Hello@123");
+
+        secretRepository.close();
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "");
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class,
+            expectedExceptionsMessageRegExp = "Off-heap secret storage cannot be combined with .*")
+    public void testOffHeapSecretsWithLazyDecryption() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("mode-secrets.properties", "my.pass.1=plainText Hello@123");
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(SecureVaultConstants.OFF_HEAP_SECRETS_CONFIG_PROPERTY, "true");
+        parameters.put(SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY, SecureVaultConstants.DECRYPTION_MODE_LAZY);
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, parameters);
+
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testResolveIntoAndWithSecret() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("borrowed-secrets.properties",
+                "my.pass.1=" + encryptToCipherTextEntry("Hello@123"), "my.pass.2=plainText World@123");
+        String[][] parameters = {
+                {SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY, SecureVaultConstants.DECRYPTION_MODE_EAGER},
+                {SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY, SecureVaultConstants.DECRYPTION_MODE_LAZY},
+                {SecureVaultConstants.SECRET_CACHE_MAX_ENTRIES_CONFIG_PROPERTY, "1"},
+                {SecureVaultConstants.OFF_HEAP_SECRETS_CONFIG_PROPERTY, "true"}
+        };
+        for (String[] parameter : parameters) {
+            SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                    secretRepositoryPath, Collections.singletonMap(parameter[0], parameter[1]));
+            DefaultSecretRepository secretRepository = new DefaultSecretRepository();
+            secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+            secretRepository.loadSecrets(secretRepositoryConfiguration);
+
+            char[] destination = new char[16];
+            int length = secretRepository.resolveInto("my.pass.1", destination);
+            Assert.assertEquals(new String(destination, 0, length), "Hello@123");
+            length = secretRepository.resolveInto("my.pass.2", destination);
+            Assert.assertEquals(new String(destination, 0, length), "World@123");
+            Assert.assertEquals(secretRepository.resolveInto("my.pass.3", destination), 0);
+
+            Assert.assertEquals(secretRepository.withSecret("my.pass.1", CharBuffer::toString), "Hello@123");
+            Assert.assertEquals(secretRepository.withSecret("my.pass.2", CharBuffer::toString), "World@123");
+            Assert.assertEquals(secretRepository.withSecret("my.pass.3", CharBuffer::toString), "");
+            Assert.assertTrue(secretRepository.withSecret("my.pass.1", CharBuffer::isReadOnly));
+
+            secretRepository.close();
+            Assert.assertEquals(secretRepository.resolveInto("my.pass.1", destination), 0);
+            Assert.assertEquals(secretRepository.withSecret("my.pass.1", CharBuffer::toString), "");
+        }
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class,
+            expectedExceptionsMessageRegExp = "Destination array is too small, '9' characters .*")
+    public void testResolveIntoSmallDestination() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("borrowed-secrets.properties", "my.pass.1=plainText Hello@123");
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, Collections.emptyMap());
+
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        secretRepository.resolveInto("my.pass.1", new char[8]);
+    }
+
     @Test(dependsOnMethods = {"testReadSecrets"}, expectedExceptions = SecureVaultException.class)
     public void testReadSecretsWrongSecretsFileLocation() throws SecureVaultException {
         Path secretRepositoryPath = TestUtils.getResourcePath("securevault", "conf", "nonExisting",
@@ -181,6 +831,7 @@ public class DefaultSecretRepositoryTest {
                 .andReturn(Optional.of("wso2carbon")).anyTimes();
         expect(secretRepositoryConfiguration.getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY))
                 .andReturn(Optional.ofNullable(secretRepositoryPath.toAbsolutePath().toString())).anyTimes();
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         SecretRepository secretRepository = new DefaultSecretRepository();
@@ -203,6 +854,7 @@ public class DefaultSecretRepositoryTest {
                 .andReturn(Optional.of("wso2carbon")).anyTimes();
         expect(secretRepositoryConfiguration.getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY))
                 .andReturn(Optional.ofNullable(secretRepositoryPath.toAbsolutePath().toString())).anyTimes();
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         MasterKeyReader masterKeyReader = new DefaultHardCodedMasterKeyReader();
@@ -226,6 +878,7 @@ public class DefaultSecretRepositoryTest {
                 .andReturn(Optional.of("wso2carbon")).anyTimes();
         expect(secretRepositoryConfiguration.getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY))
                 .andReturn(Optional.ofNullable(secretRepositoryPath.toAbsolutePath().toString())).anyTimes();
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         MasterKeyReader masterKeyReader = new DefaultHardCodedMasterKeyReader();
@@ -251,6 +904,7 @@ public class DefaultSecretRepositoryTest {
                 .andReturn(Optional.of("wso2carbon")).anyTimes();
         expect(secretRepositoryConfiguration.getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY))
                 .andReturn(Optional.ofNullable(secretRepositoryPath.toAbsolutePath().toString())).anyTimes();
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         MasterKeyReader masterKeyReader = new DefaultHardCodedMasterKeyReader();
@@ -276,6 +930,7 @@ public class DefaultSecretRepositoryTest {
                 .andReturn(Optional.of("wso2carbon")).anyTimes();
         expect(secretRepositoryConfiguration.getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY))
                 .andReturn(Optional.ofNullable(secretRepositoryPath.toAbsolutePath().toString())).anyTimes();
+        expectOptionalParameters(secretRepositoryConfiguration);
         replay(secretRepositoryConfiguration);
 
         MasterKeyReader masterKeyReader = new DefaultHardCodedMasterKeyReader();
@@ -283,4 +938,262 @@ public class DefaultSecretRepositoryTest {
         secretRepository.init(secretRepositoryConfiguration, masterKeyReader);
         secretRepository.persistSecrets(secretRepositoryConfiguration);
     }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testReadSecretsFileFormat() throws SecureVaultException {
+        System.setProperty("secretsFileFormat.secret", "Placeholder@123");
+        Path secretRepositoryPath = createSecretsFile("format-secrets.properties",
+                "# Placeholders in comments, such as ${sys:secretsFileFormat.undefined}, are not resolved",
+                "! Comment",
+                "",
+                "  my.pass.1 = " + encryptToCipherTextEntry("Hello@123"),
+                "my.pass.2:plainText multi\\\\",
+                "my.pass.3 plainText con\\",
+                "    tinued",
+                "my\\ pass\\u0034=plainText tab\\tand\\u0040",
+                "my.pass.5=plainText ${sys:secretsFileFormat.secret}",
+                "my.pass.2=plainText replaced",
+                "my.pass.6=plainText two  spaces",
+                "my.pass.7=unknownText value");
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, Collections.emptyMap());
+
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        System.clearProperty("secretsFileFormat.secret");
+
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Hello@123");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "replaced");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "continued");
+        Assert.assertEquals(new String(secretRepository.resolve("my pass4")), "tab\tand@");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.5")), "Placeholder@123");
+        Assert.assertEquals(secretRepository.resolve("my.pass.6").length, 0);
+        Assert.assertEquals(secretRepository.resolve("my.pass.7").length, 0);
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testPersistSecretsRetainsFileLayout() throws SecureVaultException, IOException {
+        String cipherTextEntry = "my.pass.1 = " + encryptToCipherTextEntry("Hello@123");
+        Path secretRepositoryPath = createSecretsFile("layout-secrets.properties", "# Secrets of the test",
+                "my.pass.3=plainText Third@123", cipherTextEntry, "", "! Comment\r", "  my.pass.2 : plainText Sec\\",
+                "    ond@123\r", "my.pass.4=invalid entry");
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                createSecretRepositoryConfiguration(secretRepositoryPath, Collections.emptyMap());
+        boolean posix = Files.getFileAttributeView(secretRepositoryPath, PosixFileAttributeView.class) != null;
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        if (posix) {
+            Files.setPosixFilePermissions(secretRepositoryPath, permissions);
+        }
+        SecretRepository secretRepository = new DefaultSecretRepository();
+        secretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        secretRepository.persistSecrets(secretRepositoryConfiguration);
+
+        String[] lines = new String(Files.readAllBytes(secretRepositoryPath), StandardCharsets.UTF_8).split("\n", -1);
+        Assert.assertEquals(lines.length, 8);
+        Assert.assertEquals(lines[0], "# Secrets of the test");
+        Assert.assertTrue(lines[1].startsWith("my.pass.3=cipherText "));
+        Assert.assertEquals(lines[2], cipherTextEntry);
+        Assert.assertEquals(lines[3], "");
+        Assert.assertEquals(lines[4], "! Comment\r");
+        Assert.assertTrue(lines[5].startsWith("  my.pass.2 : cipherText "));
+        Assert.assertTrue(lines[5].endsWith("\r"));
+        Assert.assertEquals(lines[6], "my.pass.4=invalid entry");
+        Assert.assertEquals(lines[7], "");
+        if (posix) {
+            Assert.assertEquals(Files.getPosixFilePermissions(secretRepositoryPath), permissions);
+        }
+        try (Stream<Path> files = Files.list(secretRepositoryPath.toAbsolutePath().getParent())) {
+            Assert.assertFalse(files.anyMatch(file -> file.getFileName().toString()
+                    .startsWith("layout-secrets.properties") && file.getFileName().toString().endsWith(".tmp")));
+        }
+        secretRepositoryPath.resolveSibling("layout-secrets.properties.lock").toFile().deleteOnExit();
+
+        // The secrets file is not written again once all of its secrets are encrypted
+        byte[] encryptedContent = Files.readAllBytes(secretRepositoryPath);
+        long modifiedTime = Files.getLastModifiedTime(secretRepositoryPath).toMillis();
+        secretRepository.persistSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(Files.readAllBytes(secretRepositoryPath), encryptedContent);
+        Assert.assertEquals(Files.getLastModifiedTime(secretRepositoryPath).toMillis(), modifiedTime);
+
+        secretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.1")), "Hello@123");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.2")), "Second@123");
+        Assert.assertEquals(new String(secretRepository.resolve("my.pass.3")), "Third@123");
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"})
+    public void testIndexedSecretRepository() throws SecureVaultException, InterruptedException {
+        List<String> entries = new ArrayList<>();
+        entries.add("my.pass.1=" + encryptToCipherTextEntry("Hello@123"));
+        entries.add("my.pass.2=plainText World@123");
+        for (int i = 3; i <= 100; i++) {
+            entries.add("my.pass." + i + "=plainText Secret@" + i);
+        }
+        Path secretRepositoryPath = createSecretsFile("indexed-secrets.properties", entries.toArray(new String[0]));
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(
+                        SecureVaultConstants.BATCH_PARALLELISM_CONFIG_PROPERTY, "2"));
+        Path indexedSecretsFilePath = IndexedSecretRepository.getIndexedSecretsFile(secretRepositoryConfiguration);
+        Assert.assertEquals(indexedSecretsFilePath, secretRepositoryPath.toAbsolutePath()
+                .resolveSibling("indexed-secrets.idx"));
+        indexedSecretsFilePath.toFile().deleteOnExit();
+
+        IndexedSecretRepository indexedSecretRepository = new IndexedSecretRepository();
+        indexedSecretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        indexedSecretRepository.persistSecrets(secretRepositoryConfiguration);
+        indexedSecretRepository.loadSecrets(secretRepositoryConfiguration);
+
+        Assert.assertEquals(new String(indexedSecretRepository.resolve("my.pass.1")), "Hello@123");
+        Assert.assertEquals(new String(indexedSecretRepository.resolve("my.pass.2")), "World@123");
+        for (int i = 3; i <= 100; i++) {
+            Assert.assertEquals(new String(indexedSecretRepository.resolve("my.pass." + i)), "Secret@" + i);
+        }
+        Assert.assertEquals(indexedSecretRepository.resolve("my.pass.101").length, 0);
+        char[] destination = new char[16];
+        Assert.assertEquals(indexedSecretRepository.resolveInto("my.pass.2", destination), 9);
+        Assert.assertEquals(new String(destination, 0, 9), "World@123");
+        Assert.assertEquals(indexedSecretRepository.withSecret("my.pass.1", CharSequence::toString), "Hello@123");
+        Map<String, char[]> secrets = indexedSecretRepository.resolveAll(Arrays.asList("my.pass.3", "my.pass.101"));
+        Assert.assertEquals(new String(secrets.get("my.pass.3")), "Secret@3");
+        Assert.assertEquals(secrets.get("my.pass.101").length, 0);
+
+        // Resolved secrets are copies, which are not wiped when the secrets are loaded again
+        char[] secret = indexedSecretRepository.resolve("my.pass.2");
+        indexedSecretRepository.persistSecrets(secretRepositoryConfiguration);
+        indexedSecretRepository.loadSecrets(secretRepositoryConfiguration);
+        Assert.assertEquals(new String(secret), "World@123");
+        Assert.assertEquals(new String(indexedSecretRepository.resolve("my.pass.2")), "World@123");
+
+        // The secrets.properties file is compiled without being encrypted in place, and no temporary file is left
+        try (Stream<Path> files = Files.list(indexedSecretsFilePath.getParent())) {
+            Assert.assertEquals(Files.readAllLines(secretRepositoryPath, StandardCharsets.UTF_8), entries);
+            Assert.assertFalse(files.anyMatch(file -> file.getFileName().toString().startsWith("indexed-secrets.idx")
+                    && file.getFileName().toString().endsWith(".tmp")));
+        } catch (IOException e) {
+            Assert.fail("Cannot read secrets file.");
+        }
+
+        // The thread pool of batches is shut down on close
+        Set<Thread> threads = new HashSet<>(Thread.getAllStackTraces().keySet());
+        Assert.assertEquals(indexedSecretRepository.encryptBatch(Arrays.asList(
+                "Hello@123".getBytes(StandardCharsets.UTF_8), "World@123".getBytes(StandardCharsets.UTF_8))).size(), 2);
+        List<Thread> poolThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> !threads.contains(thread) && thread.getName().startsWith("ForkJoinPool-"))
+                .collect(Collectors.toList());
+        Assert.assertFalse(poolThreads.isEmpty());
+
+        indexedSecretRepository.close();
+        Assert.assertEquals(indexedSecretRepository.resolve("my.pass.1").length, 0);
+        for (Thread poolThread : poolThreads) {
+            poolThread.join(10000);
+            Assert.assertFalse(poolThread.isAlive(), "Thread pool of batches is not shut down on close");
+        }
+    }
+
+    @Test(dependsOnMethods = {"testInitSecretRepository"}, expectedExceptions = SecureVaultException.class)
+    public void testIndexedSecretRepositoryWithInvalidFile() throws SecureVaultException {
+        Path secretRepositoryPath = createSecretsFile("invalid-indexed-secrets.properties",
+                "my.pass.1=plainText Hello@123");
+        SecretRepositoryConfiguration secretRepositoryConfiguration = createSecretRepositoryConfiguration(
+                secretRepositoryPath, Collections.singletonMap(
+                        SecureVaultConstants.INDEXED_SECRETS_FILE_CONFIG_PROPERTY, secretRepositoryPath.toString()));
+
+        IndexedSecretRepository indexedSecretRepository = new IndexedSecretRepository();
+        indexedSecretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        indexedSecretRepository.loadSecrets(secretRepositoryConfiguration);
+    }
+
+    private SecretRepository createEnvelopeSecretRepository() throws SecureVaultException {
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                EasyMock.mock(SecretRepositoryConfiguration.class);
+
+        expect(secretRepositoryConfiguration.getParameter("keystoreLocation"))
+                .andReturn(Optional.of(Paths.get("src", "test", "resources", "resources", "security",
+                        "securevault.jks").toString()));
+        expect(secretRepositoryConfiguration.getParameter("privateKeyAlias"))
+                .andReturn(Optional.of("wso2carbon"));
+        expect(secretRepositoryConfiguration.getParameter(JKSBasedCipherProvider.ENCRYPTION_MODE))
+                .andReturn(Optional.of(JKSBasedCipherProvider.ENCRYPTION_MODE_ENVELOPE));
+        expect(secretRepositoryConfiguration.getParameter(SecureVaultConstants.BATCH_PARALLELISM_CONFIG_PROPERTY))
+                .andReturn(Optional.empty());
+        replay(secretRepositoryConfiguration);
+
+        SecretRepository envelopeSecretRepository = new DefaultSecretRepository();
+        envelopeSecretRepository.init(secretRepositoryConfiguration, new DefaultHardCodedMasterKeyReader());
+        return envelopeSecretRepository;
+    }
+
+    private SecretRepositoryConfiguration createSecretRepositoryConfiguration(Path secretRepositoryPath,
+                                                                              Map<String, String> parameters) {
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                EasyMock.mock(SecretRepositoryConfiguration.class);
+
+        expect(secretRepositoryConfiguration.getParameter("keystoreLocation"))
+                .andReturn(Optional.of(Paths.get("src", "test", "resources", "resources", "security",
+                        "securevault.jks").toString()));
+        expect(secretRepositoryConfiguration.getParameter("privateKeyAlias"))
+                .andReturn(Optional.of("wso2carbon")).anyTimes();
+        expect(secretRepositoryConfiguration.getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY))
+                .andReturn(Optional.ofNullable(secretRepositoryPath.toAbsolutePath().toString())).anyTimes();
+        expectOptionalParameters(secretRepositoryConfiguration, parameters);
+        replay(secretRepositoryConfiguration);
+        return secretRepositoryConfiguration;
+    }
+
+    private static void expectOptionalParameters(SecretRepositoryConfiguration secretRepositoryConfiguration) {
+        expectOptionalParameters(secretRepositoryConfiguration, Collections.emptyMap());
+    }
+
+    /**
+     * Expect the optional parameters of the default secret repository, which are left unset unless given.
+     */
+    private static void expectOptionalParameters(SecretRepositoryConfiguration secretRepositoryConfiguration,
+                                                 Map<String, String> parameters) {
+        String[] optionalParameters = {JKSBasedCipherProvider.ENCRYPTION_MODE,
+                SecureVaultConstants.DECRYPTION_MODE_CONFIG_PROPERTY,
+                SecureVaultConstants.DECRYPTION_PARALLELISM_CONFIG_PROPERTY,
+                SecureVaultConstants.BATCH_PARALLELISM_CONFIG_PROPERTY,
+                SecureVaultConstants.WATCH_SECRETS_FILE_CONFIG_PROPERTY,
+                SecureVaultConstants.WATCH_DEBOUNCE_CONFIG_PROPERTY,
+                SecureVaultConstants.SECRET_CACHE_MAX_ENTRIES_CONFIG_PROPERTY,
+                SecureVaultConstants.SECRET_CACHE_EXPIRY_CONFIG_PROPERTY,
+                SecureVaultConstants.OFF_HEAP_SECRETS_CONFIG_PROPERTY,
+                SecureVaultConstants.INDEXED_SECRETS_FILE_CONFIG_PROPERTY};
+        for (String optionalParameter : optionalParameters) {
+            expect(secretRepositoryConfiguration.getParameter(optionalParameter))
+                    .andReturn(Optional.ofNullable(parameters.get(optionalParameter))).anyTimes();
+        }
+    }
+
+    private static Path createSecretsFile(String fileName, String... entries) throws SecureVaultException {
+        Path secretsFilePath = TestUtils.getResourcePath("securevault", "conf", fileName)
+                .orElseThrow(() -> new SecureVaultException("Secret repository path not found"));
+        try {
+            Files.write(secretsFilePath, Arrays.asList(entries), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Assert.fail("Cannot create secrets file for testing.");
+        }
+        secretsFilePath.toFile().deleteOnExit();
+        return secretsFilePath;
+    }
+
+    private String encryptToCipherTextEntry(String plainText) throws SecureVaultException {
+        byte[] cipherText = secretRepository.encrypt(plainText.getBytes(StandardCharsets.UTF_8));
+        return SecureVaultConstants.CIPHER_TEXT + " "
+                + new String(SecureVaultUtils.toChars(SecureVaultUtils.base64Encode(cipherText)));
+    }
+
+    /**
+     * A secret repository which counts the decryptions it performs.
+     */
+    private static class CountingSecretRepository extends DefaultSecretRepository {
+        private final AtomicInteger decryptionCount = new AtomicInteger();
+
+        @Override
+        public byte[] decrypt(byte[] cipherText) throws SecureVaultException {
+            decryptionCount.incrementAndGet();
+            return super.decrypt(cipherText);
+        }
+    }
 }
@@ -26,7 +26,12 @@ import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
 import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
 import org.wso2.carbon.secvault.utils.TestUtils;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Optional;
 
 /**
@@ -105,4 +110,166 @@ public class SecureVaultConfigurationProviderTest {
         Assert.assertEquals(masterKeyReaderConfiguration.getParameter("masterKeyReaderFile").get(),
                 "src/test/resources/securevault/conf/master-keys.yaml");
     }
+
+    @Test
+    public void testReadConfigurationFromServerConfiguration() throws SecureVaultException {
+        Path deploymentYAMLPath = TestUtils.getResourcePath("securevault", "conf", "deployment.yaml")
+                .orElseThrow(() -> new SecureVaultException("Deployment YAML path not found"));
+        System.setProperty("secvault.test.alias", "wso2carbon");
+        SecureVaultConfiguration secureVaultConfiguration;
+        try {
+            secureVaultConfiguration = SecureVaultUtils.getSecureVaultConfig(deploymentYAMLPath)
+                    .orElseThrow(() -> new SecureVaultException("Error in getting secure vault configuration"));
+        } finally {
+            System.clearProperty("secvault.test.alias");
+        }
+
+        // Placeholders outside the secure vault configuration are not resolved
+        SecretRepositoryConfiguration secretRepositoryConfiguration = secureVaultConfiguration
+                .getSecretRepositoryConfig();
+        Assert.assertEquals(secretRepositoryConfiguration.getType().get(),
+                "org.wso2.carbon.secvault.repository.DefaultSecretRepository");
+        Assert.assertEquals(secretRepositoryConfiguration.getParameter("privateKeyAlias").get(), "wso2carbon");
+        MasterKeyReaderConfiguration masterKeyReaderConfiguration = secureVaultConfiguration
+                .getMasterKeyReaderConfig();
+        Assert.assertEquals(masterKeyReaderConfiguration.getType().get(),
+                "org.wso2.carbon.secvault.reader.DefaultMasterKeyReader");
+        Assert.assertEquals(masterKeyReaderConfiguration.getParameter("masterKeyReaderFile"), Optional.empty());
+    }
+
+    @Test(expectedExceptions = SecureVaultException.class)
+    public void testReadMissingConfiguration() throws SecureVaultException {
+        Path masterKeysYAMLPath = TestUtils.getResourcePath("securevault", "conf",
+                SecureVaultConstants.MASTER_KEYS_FILE_NAME)
+                .orElseThrow(() -> new SecureVaultException("Master keys YAML path not found"));
+        SecureVaultUtils.getSecureVaultConfig(masterKeysYAMLPath);
+    }
+
+    @Test
+    public void testConfigurationRegistry() throws SecureVaultException, IOException {
+        Path secureVaultYAMLPath = TestUtils.getResourcePath("securevault", "conf",
+                SecureVaultConstants.SECURE_VAULT_CONFIG_YAML_FILE_NAME)
+                .orElseThrow(() -> new SecureVaultException("Secure vault YAML path not found"));
+        Path configPath = Files.createTempFile("secure-vault", ".yaml");
+        try {
+            String content = new String(Files.readAllBytes(secureVaultYAMLPath), StandardCharsets.UTF_8);
+            Files.write(configPath, content.replace("wso2carbon", "${sys:secvault.test.alias}")
+                    .getBytes(StandardCharsets.UTF_8));
+            SecureVaultConfigurationRegistry registry = SecureVaultConfigurationRegistry.getInstance();
+            ParsedSecureVaultConfiguration parsedConfiguration = registry.getParsedSecureVaultConfig(configPath)
+                    .orElseThrow(() -> new SecureVaultException("Error in getting secure vault configuration"));
+            Assert.assertSame(registry.getParsedSecureVaultConfig(configPath).get(), parsedConfiguration);
+
+            // Placeholders are resolved on every read, and each read returns a separate configuration
+            System.setProperty("secvault.test.alias", "wso2carbon");
+            SecureVaultConfiguration secureVaultConfiguration = SecureVaultUtils.getSecureVaultConfig(configPath).get();
+            System.setProperty("secvault.test.alias", "wso2carbon2");
+            SecureVaultConfiguration changedConfiguration = SecureVaultUtils.getSecureVaultConfig(configPath).get();
+            Assert.assertEquals(secureVaultConfiguration.getSecretRepositoryConfig().getParameter("privateKeyAlias")
+                    .get(), "wso2carbon");
+            Assert.assertEquals(changedConfiguration.getSecretRepositoryConfig().getParameter("privateKeyAlias")
+                    .get(), "wso2carbon2");
+            secureVaultConfiguration.getSecretRepositoryConfig().setParameter("privateKeyAlias", "modified");
+            Assert.assertEquals(SecureVaultUtils.getSecureVaultConfig(configPath).get().getSecretRepositoryConfig()
+                    .getParameter("privateKeyAlias").get(), "wso2carbon2");
+
+            // A modification which does not change the content does not parse the file again
+            Files.setLastModifiedTime(configPath, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+            Assert.assertSame(registry.getParsedSecureVaultConfig(configPath).get(), parsedConfiguration);
+
+            Files.write(configPath, content.replace("wso2carbon", "wso2carbon3").getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(configPath, FileTime.fromMillis(System.currentTimeMillis() + 20000));
+            ParsedSecureVaultConfiguration modifiedConfiguration = registry.getParsedSecureVaultConfig(configPath)
+                    .get();
+            Assert.assertNotSame(modifiedConfiguration, parsedConfiguration);
+            Assert.assertEquals(modifiedConfiguration.resolve().getSecretRepositoryConfig()
+                    .getParameter("privateKeyAlias").get(), "wso2carbon3");
+
+            registry.invalidate(configPath);
+            Assert.assertNotSame(registry.getParsedSecureVaultConfig(configPath).get(), modifiedConfiguration);
+        } finally {
+            System.clearProperty("secvault.test.alias");
+            SecureVaultConfigurationRegistry.getInstance().invalidate(configPath);
+            Files.delete(configPath);
+        }
+    }
+
+    @Test
+    public void testReadConfigurationWithAliases() throws SecureVaultException {
+        String content = "wso2.carbon:\n" +
+                "  keystore: &keystore src/test/resources/resources/security/securevault.jks\n" +
+                "  parameters: &parameters\n" +
+                "    masterKeyReaderFile: master-keys.yaml\n" +
+                "securevault:\n" +
+                "  secretRepository:\n" +
+                "    type: &type org.wso2.carbon.secvault.repository.DefaultSecretRepository\n" +
+                "    parameters:\n" +
+                "      keystoreLocation: *keystore\n" +
+                "      *type : repository\n" +
+                "  masterKeyReader:\n" +
+                "    type: org.wso2.carbon.secvault.reader.DefaultMasterKeyReader\n" +
+                "    parameters: *parameters\n";
+        SecureVaultConfiguration secureVaultConfiguration = SecureVaultUtils.parseSecureVaultConfig(
+                Paths.get("deployment.yaml"), content.getBytes(StandardCharsets.UTF_8))
+                .orElseThrow(() -> new SecureVaultException("Error in getting secure vault configuration")).resolve();
+        SecretRepositoryConfiguration secretRepositoryConfiguration = secureVaultConfiguration
+                .getSecretRepositoryConfig();
+        Assert.assertEquals(secretRepositoryConfiguration.getParameter("keystoreLocation").orElse(null),
+                "src/test/resources/resources/security/securevault.jks");
+        Assert.assertEquals(secretRepositoryConfiguration.getParameter(
+                "org.wso2.carbon.secvault.repository.DefaultSecretRepository").orElse(null), "repository");
+        Assert.assertEquals(secureVaultConfiguration.getMasterKeyReaderConfig().getParameter("masterKeyReaderFile")
+                .orElse(null), "master-keys.yaml");
+
+        String mergeKeyContent = "defaults: &defaults\n" +
+                "  type: org.wso2.carbon.secvault.reader.DefaultMasterKeyReader\n" +
+                "securevault:\n" +
+                "  masterKeyReader:\n" +
+                "    <<: *defaults\n";
+        try {
+            SecureVaultUtils.parseSecureVaultConfig(Paths.get("deployment.yaml"),
+                    mergeKeyContent.getBytes(StandardCharsets.UTF_8));
+            Assert.fail("Merge key is read in the secure vault configuration");
+        } catch (SecureVaultException e) {
+            Assert.assertEquals(e.getMessage(),
+                    "Merge keys are not supported in the secure vault configuration at line 5, column 5");
+        }
+        try {
+            SecureVaultUtils.parseSecureVaultConfig(Paths.get("deployment.yaml"),
+                    "securevault:\n  masterKeyReader: *undefined\n".getBytes(StandardCharsets.UTF_8));
+            Assert.fail("Undefined alias is read in the secure vault configuration");
+        } catch (SecureVaultException e) {
+            Assert.assertEquals(e.getMessage(), "Found undefined alias 'undefined' at line 2, column 20");
+        }
+    }
+
+    @Test
+    public void testPlaceholderResolver() throws SecureVaultException {
+        System.setProperty("secvault.test.host", "localhost");
+        try {
+            PlaceholderResolver placeholderResolver = PlaceholderResolver.getDefault();
+            Assert.assertEquals(placeholderResolver.resolve("https://${sys:secvault.test.host}:${port:https}/${sys:"),
+                    "https://localhost:${port:https}/${sys:");
+            Assert.assertEquals(placeholderResolver.withLookup("port", key -> "9443")
+                    .resolve(new StringBuilder("${sys:secvault.test.host}:${port:https}")), "localhost:9443");
+
+            PlaceholderResolver snapshot = PlaceholderResolver.snapshot();
+            System.setProperty("secvault.test.host", "example.com");
+            Assert.assertEquals(snapshot.resolve("${sys:secvault.test.host}"), "localhost");
+            Assert.assertEquals(placeholderResolver.resolve("${sys:secvault.test.host}"), "example.com");
+            Assert.assertTrue(PlaceholderResolver.isTemplateCached("${sys:secvault.test.host}"));
+
+            String secret = "ABC@1234${sys:secvault.test.host}";
+            Assert.assertEquals(placeholderResolver.withoutTemplateCache().resolve(secret), "ABC@1234example.com");
+            Assert.assertFalse(PlaceholderResolver.isTemplateCached(secret));
+        } finally {
+            System.clearProperty("secvault.test.host");
+        }
+        try {
+            PlaceholderResolver.getDefault().resolve("${sys:secvault.test.host}");
+            Assert.fail("Placeholder without a value is resolved");
+        } catch (SecureVaultException e) {
+            Assert.assertEquals(e.getMessage(), "A value for placeholder 'secvault.test.host' is not specified");
+        }
+    }
 }
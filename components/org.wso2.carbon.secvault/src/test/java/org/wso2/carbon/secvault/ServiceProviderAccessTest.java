@@ -20,9 +20,27 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.internal.FlightRecorderEvents;
+import org.wso2.carbon.secvault.metrics.AliasMode;
+import org.wso2.carbon.secvault.metrics.JmxSecureVaultMetrics;
 import org.wso2.carbon.secvault.utils.TestUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
 
 /**
  * Unit tests class for SecureVaultInitializer.
@@ -46,4 +64,209 @@ public class ServiceProviderAccessTest {
                 .orElseThrow(() -> new SecureVaultException("Error in obtaining secure vault instance"));
         Assert.assertEquals(String.valueOf(secureVault.resolve(alias)), "ABC@1234");
     }
+
+    @Test
+    public void testSecureVaultMetrics() throws SecureVaultException, JMException {
+        String alias = "wso2.sample.password2";
+        SecureVault secureVault = new SecureVaultFactory().getSecureVault(secureVaultYAMLPath)
+                .orElseThrow(() -> new SecureVaultException("Error in obtaining secure vault instance"));
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(JmxSecureVaultMetrics.OBJECT_NAME);
+        Assert.assertTrue(mBeanServer.isRegistered(objectName));
+        mBeanServer.invoke(objectName, "reset", null, null);
+
+        secureVault.resolve(alias);
+        secureVault.resolve(alias);
+        secureVault.resolve("non.existing.alias");
+        byte[] plainText = "ABC@1234".getBytes(StandardCharsets.UTF_8);
+        secureVault.decrypt(secureVault.encrypt(plainText));
+        try {
+            secureVault.decrypt(plainText);
+            Assert.fail("Decryption of an invalid cipher text should fail");
+        } catch (SecureVaultException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+
+        Assert.assertEquals(mBeanServer.getAttribute(objectName, "ResolveHitCount"), 2L);
+        Assert.assertEquals(mBeanServer.getAttribute(objectName, "ResolveMissCount"), 1L);
+        Assert.assertEquals(mBeanServer.getAttribute(objectName, "ResolveErrorCount"), 0L);
+        Assert.assertEquals(mBeanServer.getAttribute(objectName, "DecryptErrorCount"), 1L);
+        Assert.assertEquals(mBeanServer.getAttribute(objectName, "DecryptedBytes"), (long) plainText.length);
+        CompositeData resolveLatency = (CompositeData) mBeanServer.getAttribute(objectName, "ResolveLatency");
+        Assert.assertEquals(resolveLatency.get("count"), 3L);
+        Assert.assertTrue((Double) resolveLatency.get("maxMicros") >= (Double) resolveLatency.get("p50Micros"));
+        CompositeData decryptLatency = (CompositeData) mBeanServer.getAttribute(objectName, "DecryptLatency");
+        Assert.assertEquals(decryptLatency.get("count"), 1L);
+        TabularData resolveCountByAlias = (TabularData) mBeanServer.getAttribute(objectName, "ResolveCountByAlias");
+        Assert.assertTrue(resolveCountByAlias.isEmpty(), "Aliases should not be tracked unless opted in");
+
+        JmxSecureVaultMetrics plainMetrics = new JmxSecureVaultMetrics(AliasMode.PLAIN);
+        plainMetrics.recordResolveResult(alias, true);
+        plainMetrics.recordResolveResult(alias, true);
+        Assert.assertEquals(plainMetrics.getResolveCountByAlias(), Collections.singletonMap(alias, 2L));
+        JmxSecureVaultMetrics redactedMetrics = new JmxSecureVaultMetrics(AliasMode.REDACTED);
+        redactedMetrics.recordResolveResult(alias, true);
+        Assert.assertEquals(redactedMetrics.getResolveCountByAlias().size(), 1);
+        Assert.assertFalse(redactedMetrics.getResolveCountByAlias().containsKey(alias));
+        Assert.assertEquals(redactedMetrics.getResolveCountByAlias().keySet().iterator().next().length(), 16);
+
+        // Metrics of another secure vault neither replace nor unregister the registered metrics
+        plainMetrics.register();
+        plainMetrics.unregister();
+        Assert.assertTrue(mBeanServer.isRegistered(objectName));
+        Assert.assertEquals(mBeanServer.getAttribute(objectName, "ResolveHitCount"), 2L);
+    }
+
+    @Test
+    public void testFlightRecorderAliasValues() {
+        String alias = "wso2.sample.password2";
+        Assert.assertEquals(AliasMode.PLAIN.getAliasValue(alias), alias);
+        String redactedAlias = AliasMode.REDACTED.getAliasValue(alias);
+        Assert.assertTrue(redactedAlias.matches("[0-9a-f]{16}"));
+        Assert.assertEquals(AliasMode.REDACTED.getAliasValue(alias), redactedAlias);
+        Assert.assertNotEquals(AliasMode.REDACTED.getAliasValue("wso2.sample.password1"), redactedAlias);
+        Assert.assertNull(AliasMode.NONE.getAliasValue(alias));
+        for (AliasMode aliasMode : AliasMode.values()) {
+            Assert.assertNull(aliasMode.getAliasValue(null));
+        }
+        Assert.assertEquals(FlightRecorderEvents.getAliasValue(alias), alias);
+
+        String property = "secvault.test.alias.mode";
+        try {
+            Assert.assertEquals(AliasMode.fromSystemProperty(property, AliasMode.NONE), AliasMode.NONE);
+            System.setProperty(property, " Redacted ");
+            Assert.assertEquals(AliasMode.fromSystemProperty(property, AliasMode.NONE), AliasMode.REDACTED);
+            System.setProperty(property, "hashed");
+            Assert.assertEquals(AliasMode.fromSystemProperty(property, AliasMode.PLAIN), AliasMode.PLAIN);
+        } finally {
+            System.clearProperty(property);
+        }
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        // Without a recording which enables them, events are neither created nor committed
+        Assert.assertNull(FlightRecorderEvents.RESOLVE.begin());
+        FlightRecorderEvents.commit(null, "alias", 1, true);
+        FlightRecorderEvents.commit(new Object(), "alias", 1, true);
+
+        Class<?> recordingClass;
+        try {
+            recordingClass = Class.forName("jdk.jfr.Recording");
+        } catch (ClassNotFoundException e) {
+            // Flight Recorder is not available in this JVM, which the events above are safe without
+            return;
+        }
+        String alias = "wso2.sample.password2";
+        SecureVault secureVault = new SecureVaultFactory().getSecureVault(secureVaultYAMLPath)
+                .orElseThrow(() -> new SecureVaultException("Error in obtaining secure vault instance"));
+        Path recordingFile = Files.createTempFile("secvault", ".jfr");
+        Object recording = recordingClass.getConstructor().newInstance();
+        try {
+            recordingClass.getMethod("enable", String.class).invoke(recording, "org.wso2.carbon.secvault.Resolve");
+            recordingClass.getMethod("start").invoke(recording);
+            secureVault.resolve(alias);
+            recordingClass.getMethod("stop").invoke(recording);
+            recordingClass.getMethod("dump", Path.class).invoke(recording, recordingFile);
+
+            List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, recordingFile);
+            Assert.assertEquals(events.size(), 1);
+            Object event = events.get(0);
+            Object eventType = event.getClass().getMethod("getEventType").invoke(event);
+            Assert.assertEquals(eventType.getClass().getMethod("getName").invoke(eventType),
+                    "org.wso2.carbon.secvault.Resolve");
+            Assert.assertEquals(event.getClass().getMethod("getString", String.class).invoke(event, "alias"), alias);
+            Assert.assertEquals(event.getClass().getMethod("getInt", String.class).invoke(event, "aliasCount"), 1);
+            Assert.assertEquals(event.getClass().getMethod("getBoolean", String.class).invoke(event, "succeeded"),
+                    true);
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
+    @Test
+    public void testStartupTimeline() throws SecureVaultException {
+        SecureVault secureVault = new SecureVaultFactory().getSecureVault(secureVaultYAMLPath)
+                .orElseThrow(() -> new SecureVaultException("Error in obtaining secure vault instance"));
+        StartupTimeline startupTimeline = secureVault.getStartupTimeline()
+                .orElseThrow(() -> new SecureVaultException("Startup timeline not found"));
+        List<StartupTimeline.Phase> phases = startupTimeline.getPhases();
+        Assert.assertEquals(phases.stream().map(StartupTimeline.Phase::getName).collect(Collectors.toList()),
+                Arrays.asList("configuration", "master key reader init", "secret repository init", "secrets load"));
+        Assert.assertEquals(getPhaseNames(phases.get(2)),
+                Arrays.asList("master keys read", "key store load", "cipher init"));
+        Assert.assertTrue(getPhaseNames(phases.get(2).getPhases().get(0)).contains("system properties"));
+
+        StartupTimeline.Phase parsePhase = phases.get(3).getPhases().get(0);
+        Assert.assertEquals(parsePhase.getName(), "parse");
+        Assert.assertTrue(parsePhase.getCounts().get("secrets") > 0);
+        long totalNanos = phases.stream().mapToLong(StartupTimeline.Phase::getDurationNanos).sum();
+        Assert.assertTrue(startupTimeline.getDurationNanos() >= totalNanos);
+        Assert.assertTrue(startupTimeline.getSummary().startsWith("Secure vault initialized in "));
+        Assert.assertTrue(startupTimeline.getSummary().contains("key store load "));
+    }
+
+    @Test
+    public void testSecureVaultDefaultMethods() throws SecureVaultException {
+        SecureVault secureVault = new LegacySecureVault(new SecureVaultFactory().getSecureVault(secureVaultYAMLPath)
+                .orElseThrow(() -> new SecureVaultException("Error in obtaining secure vault instance")));
+        byte[] plainText = "ABC@1234".getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer cipherText = ByteBuffer.allocate(1024);
+        secureVault.encrypt(ByteBuffer.wrap(plainText), cipherText);
+        cipherText.flip();
+        ByteBuffer decryptedText = ByteBuffer.allocate(1024);
+        Assert.assertEquals(secureVault.decrypt(cipherText, decryptedText), plainText.length);
+        Assert.assertEquals(Arrays.copyOf(decryptedText.array(), decryptedText.position()), plainText);
+
+        ByteArrayOutputStream encryptedStream = new ByteArrayOutputStream();
+        secureVault.encrypt(new ByteArrayInputStream(plainText), encryptedStream);
+        ByteArrayOutputStream decryptedStream = new ByteArrayOutputStream();
+        secureVault.decrypt(new ByteArrayInputStream(encryptedStream.toByteArray()), decryptedStream);
+        Assert.assertEquals(decryptedStream.toByteArray(), plainText);
+
+        List<CipherResult> results = secureVault.encryptBatch(Collections.singletonList(plainText));
+        Assert.assertEquals(secureVault.decryptBatch(Collections.singletonList(results.get(0).getOutput()))
+                .get(0).getOutput(), plainText);
+
+        String alias = "wso2.sample.password2";
+        char[] destination = new char[16];
+        Assert.assertEquals(new String(destination, 0, secureVault.resolveInto(alias, destination)), "ABC@1234");
+        Assert.assertEquals(secureVault.withSecret(alias, CharSequence::toString), "ABC@1234");
+        Assert.assertEquals(new String(secureVault.resolveAll(Collections.singletonList(alias)).get(alias)),
+                "ABC@1234");
+        Assert.assertFalse(secureVault.getStartupTimeline().isPresent());
+    }
+
+    private static List<String> getPhaseNames(StartupTimeline.Phase phase) {
+        return phase.getPhases().stream().map(StartupTimeline.Phase::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * A secure vault which only implements the methods of secure vault prior to 5.0.23.
+     */
+    private static class LegacySecureVault implements SecureVault {
+        private final SecureVault secureVault;
+
+        private LegacySecureVault(SecureVault secureVault) {
+            this.secureVault = secureVault;
+        }
+
+        @Override
+        public char[] resolve(String alias) throws SecureVaultException {
+            return secureVault.resolve(alias);
+        }
+
+        @Override
+        public byte[] encrypt(byte[] plainText) throws SecureVaultException {
+            return secureVault.encrypt(plainText);
+        }
+
+        @Override
+        public byte[] decrypt(byte[] cipherText) throws SecureVaultException {
+            return secureVault.decrypt(cipherText);
+        }
+    }
 }
@@ -18,12 +18,16 @@ package org.wso2.carbon.secvault.ciphertool;
 
 import org.wso2.carbon.secvault.MasterKeyReader;
 import org.wso2.carbon.secvault.SecretRepository;
+import org.wso2.carbon.secvault.SecureVaultConstants;
 import org.wso2.carbon.secvault.SecureVaultUtils;
 import org.wso2.carbon.secvault.exception.SecureVaultException;
+import org.wso2.carbon.secvault.model.SecretRepositoryConfiguration;
 import org.wso2.carbon.secvault.model.SecureVaultConfiguration;
+import org.wso2.carbon.secvault.repository.IndexedSecretRepository;
 
 import java.net.URLClassLoader;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.logging.Logger;
 
 /**
@@ -100,4 +104,29 @@ public class CipherTool {
         logger.info("Decrypted value : " + new String(SecureVaultUtils.toChars(decryptedPassword)));
         return SecureVaultUtils.toChars(decryptedPassword);
     }
+
+    /**
+     * Compile the secrets.properties file into an indexed secrets file, which is read by the
+     * {@link IndexedSecretRepository}. Plain text secrets are encrypted with the configured secret repository.
+     *
+     * @param indexedSecretsFile path of the indexed secrets file to write, or an empty string when
+     *                           {@code -compileSecrets} is given without a path, to write the configured
+     *                           indexedSecretsFile or else the .idx file next to the secrets.properties file
+     * @return number of compiled secrets
+     * @throws SecureVaultException error on compiling the secrets
+     */
+    public int compileSecrets(String indexedSecretsFile) throws SecureVaultException {
+        SecretRepositoryConfiguration secretRepositoryConfiguration =
+                secureVaultConfiguration.getSecretRepositoryConfig();
+        Path secretPropertiesFilePath = Paths.get(secretRepositoryConfiguration
+                .getParameter(SecureVaultConstants.SECRET_PROPERTIES_CONFIG_PROPERTY)
+                .orElseThrow(() -> new SecureVaultException("Secret properties path not found")));
+        Path indexedSecretsFilePath = indexedSecretsFile.isEmpty() ?
+                IndexedSecretRepository.getIndexedSecretsFile(secretRepositoryConfiguration) :
+                Paths.get(indexedSecretsFile);
+        int count = IndexedSecretRepository.compile(secretPropertiesFilePath, indexedSecretsFilePath,
+                secretRepository);
+        logger.info("Compiled " + count + " secrets into : " + indexedSecretsFilePath);
+        return count;
+    }
 }
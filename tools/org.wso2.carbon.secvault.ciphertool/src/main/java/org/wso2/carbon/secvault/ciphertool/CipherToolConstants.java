@@ -26,6 +26,7 @@ public class CipherToolConstants {
     public static final String CONFIG_PATH_COMMAND = "-configPath";
     public static final String ENCRYPT_TEXT_COMMAND = "-encryptText";
     public static final String DECRYPT_TEXT_COMMAND = "-decryptText";
+    public static final String COMPILE_SECRETS_COMMAND = "-compileSecrets";
     public static final String CUSTOM_LIB_PATH_COMMAND = "-customLibPath";
     public static final String EXECUTE_RUNTIME = "-runtime";
 
@@ -33,6 +34,7 @@ public class CipherToolConstants {
     public static final String ENCRYPT_SECRETS_METHOD = "encryptSecrets";
     public static final String ENCRYPT_TEXT_METHOD = "encryptText";
     public static final String DECRYPT_TEXT_METHOD = "decryptText";
+    public static final String COMPILE_SECRETS_METHOD = "compileSecrets";
 
 
     public static final String CIPHER_TOOL_CLASS = "org.wso2.carbon.secvault.ciphertool.CipherTool";
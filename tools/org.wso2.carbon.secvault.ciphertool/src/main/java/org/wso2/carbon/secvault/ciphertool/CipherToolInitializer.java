@@ -146,6 +146,11 @@ public class CipherToolInitializer {
                     method = objCipherTool.getClass().getMethod(CipherToolConstants.DECRYPT_TEXT_METHOD, String.class);
                     method.invoke(objCipherTool, parameter);
                     break;
+                case CipherToolConstants.COMPILE_SECRETS_COMMAND:
+                    method = objCipherTool.getClass().getMethod(CipherToolConstants.COMPILE_SECRETS_METHOD,
+                            String.class);
+                    method.invoke(objCipherTool, parameter);
+                    break;
                 default:
                     method = objCipherTool.getClass().getMethod(CipherToolConstants.ENCRYPT_SECRETS_METHOD);
                     method.invoke(objCipherTool);
@@ -177,7 +182,13 @@ public class CipherToolInitializer {
                 + "     Eg: ciphertool.sh -encryptText Abc@123 -runtime XxXx\n\n"
                 + "4. -decryptText : this option accepts base64 encoded cipher text and prints the decoded plain text\n"
                 + "   in the console.\n"
-                + "     Eg: ciphertool.sh -decryptText XxXxXx -runtime XxXx\n"
+                + "     Eg: ciphertool.sh -decryptText XxXxXx -runtime XxXx\n\n"
+                + "5. -compileSecrets : this option compiles the secrets.properties file into the given indexed\n"
+                + "   secrets file, which is read by the IndexedSecretRepository. If no file is given, the\n"
+                + "   indexedSecretsFile of the secret repository configuration is used, or else the secrets.idx\n"
+                + "   file next to the secrets.properties file.\n"
+                + "     Eg: ciphertool.sh -compileSecrets [CARBON_HOME]/conf/XxXx/secrets.idx -runtime XxXx\n"
+                + "     Eg: ciphertool.sh -compileSecrets -runtime XxXx\n"
         );
     }
 }
@@ -35,35 +35,48 @@ public class CommandLineParser {
     private String runtime;
 
     public CommandLineParser(String... args) throws CipherToolException {
-        if (args.length % 2 != 0) {
-            throw new CipherToolException("Invalid argument count.");
+        int i = 0;
+        while (i < args.length) {
+            switch (args[i]) {
+                case CipherToolConstants.CONFIG_PATH_COMMAND:
+                    customConfigPath = getArgument(args, i + 1);
+                    break;
+                case CipherToolConstants.CUSTOM_LIB_PATH_COMMAND:
+                    customLibPath = getArgument(args, i + 1);
+                    break;
+                case CipherToolConstants.EXECUTE_RUNTIME:
+                    runtime = getArgument(args, i + 1);
+                    break;
+                case CipherToolConstants.ENCRYPT_TEXT_COMMAND:
+                    commandName = CipherToolConstants.ENCRYPT_TEXT_COMMAND;
+                    commandParam = getArgument(args, i + 1);
+                    break;
+                case CipherToolConstants.DECRYPT_TEXT_COMMAND:
+                    commandName = CipherToolConstants.DECRYPT_TEXT_COMMAND;
+                    commandParam = getArgument(args, i + 1);
+                    break;
+                case CipherToolConstants.COMPILE_SECRETS_COMMAND:
+                    commandName = CipherToolConstants.COMPILE_SECRETS_COMMAND;
+                    // The indexed secrets file is optional, an empty parameter selects the configured one
+                    if (i + 1 >= args.length || args[i + 1].startsWith("-")) {
+                        commandParam = "";
+                        i++;
+                        continue;
+                    }
+                    commandParam = args[i + 1];
+                    break;
+                default:
+                    throw new CipherToolException("Invalid argument");
+            }
+            i += 2;
         }
+    }
 
-        if (args.length > 0) {
-            for (int i = 0; i < args.length; i += 2) {
-                switch (args[i]) {
-                    case CipherToolConstants.CONFIG_PATH_COMMAND:
-                        customConfigPath = args[i + 1];
-                        break;
-                    case CipherToolConstants.CUSTOM_LIB_PATH_COMMAND:
-                        customLibPath = args[i + 1];
-                        break;
-                    case CipherToolConstants.EXECUTE_RUNTIME:
-                        runtime = args[i + 1];
-                        break;
-                    case CipherToolConstants.ENCRYPT_TEXT_COMMAND:
-                        commandName = CipherToolConstants.ENCRYPT_TEXT_COMMAND;
-                        commandParam = args[i + 1];
-                        break;
-                    case CipherToolConstants.DECRYPT_TEXT_COMMAND:
-                        commandName = CipherToolConstants.DECRYPT_TEXT_COMMAND;
-                        commandParam = args[i + 1];
-                        break;
-                    default:
-                        throw new CipherToolException("Invalid argument");
-                }
-            }
+    private static String getArgument(String[] args, int index) throws CipherToolException {
+        if (index >= args.length) {
+            throw new CipherToolException("Invalid argument count.");
         }
+        return args[index];
     }
 
     /**
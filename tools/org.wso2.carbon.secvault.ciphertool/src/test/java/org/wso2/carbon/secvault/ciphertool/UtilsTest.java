@@ -18,6 +18,8 @@ package org.wso2.carbon.secvault.ciphertool;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import org.wso2.carbon.secvault.ciphertool.exceptions.CipherToolException;
+import org.wso2.carbon.secvault.ciphertool.utils.CommandLineParser;
 import org.wso2.carbon.secvault.ciphertool.utils.Utils;
 import org.wso2.carbon.utils.Constants;
 
@@ -52,4 +54,28 @@ public class UtilsTest {
         Class clazz = urlClassLoader.loadClass(CLASS_NAME);
         Assert.assertNotNull(clazz);
     }
+
+    @Test
+    public void testCompileSecretsCommandLine() throws CipherToolException {
+        CommandLineParser commandLineParser = new CommandLineParser("-compileSecrets", "secrets.idx", "-runtime",
+                "ABC");
+        Assert.assertEquals(commandLineParser.getCommandName().orElse(null),
+                CipherToolConstants.COMPILE_SECRETS_COMMAND);
+        Assert.assertEquals(commandLineParser.getCommandParam().orElse(null), "secrets.idx");
+        Assert.assertEquals(commandLineParser.getRuntime().orElse(null), "ABC");
+
+        commandLineParser = new CommandLineParser("-compileSecrets", "-runtime", "ABC");
+        Assert.assertEquals(commandLineParser.getCommandParam().orElse(null), "");
+        Assert.assertEquals(commandLineParser.getRuntime().orElse(null), "ABC");
+
+        commandLineParser = new CommandLineParser("-runtime", "ABC", "-compileSecrets");
+        Assert.assertEquals(commandLineParser.getCommandName().orElse(null),
+                CipherToolConstants.COMPILE_SECRETS_COMMAND);
+        Assert.assertEquals(commandLineParser.getCommandParam().orElse(null), "");
+    }
+
+    @Test(expectedExceptions = CipherToolException.class)
+    public void testMissingCommandLineArgument() throws CipherToolException {
+        new CommandLineParser("-runtime", "ABC", "-encryptText");
+    }
 }